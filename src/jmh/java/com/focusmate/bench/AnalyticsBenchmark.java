@@ -0,0 +1,90 @@
+package com.focusmate.bench;
+
+import com.focusmate.model.Session;
+import com.focusmate.model.SessionColumns;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The aggregations behind /api/analytics/summary, /activity and /task/{id},
+ * over the columnar form the analytics paths use and over plain Session
+ * objects for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnalyticsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int sessionsPerUser;
+
+    @Param({"30", "365", "1825"})
+    public int daysOfHistory;
+
+    @Param({"200"})
+    public int tasksPerUser;
+
+    private List<Session> sessions;
+    private SessionColumns columns;
+    private final LocalDate today = Datasets.TODAY;
+    private final int taskId = 1_005;
+
+    @Setup
+    public void setup() {
+        sessions = Datasets.sessions(sessionsPerUser, daysOfHistory, tasksPerUser);
+        columns = SessionColumns.of(sessions);
+    }
+
+    @Benchmark
+    public void summaryColumns(Blackhole bh) {
+        bh.consume(columns.countOnDay(today));
+        bh.consume(columns.totalMinutes());
+        bh.consume(columns.size());
+    }
+
+    @Benchmark
+    public Map<LocalDate, Integer> activityColumns() {
+        return columns.minutesByDay();
+    }
+
+    @Benchmark
+    public int taskTotalColumns() {
+        return columns.minutesForTask(taskId);
+    }
+
+    @Benchmark
+    public SessionColumns loadColumns() {
+        return SessionColumns.of(sessions);
+    }
+
+    @Benchmark
+    public void summaryObjects(Blackhole bh) {
+        bh.consume(sessions.stream().filter(s -> s.start != null && s.start.toLocalDate().equals(today)).count());
+        bh.consume(sessions.stream().mapToInt(s -> s.actualMinutes).sum());
+        bh.consume(sessions.size());
+    }
+
+    @Benchmark
+    public Map<String, Integer> activityObjects() {
+        Map<String, Integer> daily = new LinkedHashMap<>();
+        for (Session s : sessions) {
+            String key = s.start.toLocalDate().toString();
+            daily.put(key, daily.getOrDefault(key, 0) + s.actualMinutes);
+        }
+        return daily;
+    }
+
+    @Benchmark
+    public int taskTotalObjects() {
+        return sessions.stream()
+                .filter(s -> s.taskId != null && s.taskId == taskId)
+                .mapToInt(s -> s.actualMinutes)
+                .sum();
+    }
+}
@@ -0,0 +1,67 @@
+package com.focusmate.bench;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only ResultSet over in-memory rows, so DAO row mapping can be measured
+ * without a database. Only the getters the DAOs use are implemented; the proxy
+ * dispatch adds a constant cost per call, which is fine for tracking changes.
+ */
+public final class ArrayResultSet {
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final Object[][] rows;
+    private int cursor = -1;
+    private boolean lastNull;
+
+    private ArrayResultSet(String[] labels, Object[][] rows) {
+        for (int i = 0; i < labels.length; i++) columns.put(labels[i], i);
+        this.rows = rows;
+    }
+
+    public static ResultSet of(String[] labels, Object[][] rows) {
+        ArrayResultSet data = new ArrayResultSet(labels, rows);
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> data.invoke(method.getName(), args));
+    }
+
+    private Object invoke(String name, Object[] args) {
+        switch (name) {
+            case "next":
+                return ++cursor < rows.length;
+            case "wasNull":
+                return lastNull;
+            case "close":
+                return null;
+            case "beforeFirst":
+                cursor = -1;
+                return null;
+            default:
+                break;
+        }
+        Object value = value(args[0]);
+        lastNull = value == null;
+        switch (name) {
+            case "getInt":
+                return value == null ? 0 : ((Number) value).intValue();
+            case "getLong":
+                return value == null ? 0L : ((Number) value).longValue();
+            case "getBoolean":
+                return value != null && (Boolean) value;
+            case "getString":
+            case "getDate":
+            case "getTimestamp":
+            case "getObject":
+                return value;
+            default:
+                throw new UnsupportedOperationException(name);
+        }
+    }
+
+    private Object value(Object column) {
+        int index = column instanceof Integer i ? i - 1 : columns.get((String) column);
+        return rows[cursor][index];
+    }
+}
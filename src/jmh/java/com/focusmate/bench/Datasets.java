@@ -0,0 +1,84 @@
+package com.focusmate.bench;
+
+import com.focusmate.model.Session;
+import com.focusmate.model.Task;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/** Deterministic synthetic data shared by the benchmarks. */
+public final class Datasets {
+    public static final int USER_ID = 7;
+    public static final LocalDate TODAY = LocalDate.of(2025, 6, 1);
+    private static final String[] STATUSES = {"PENDING", "PENDING", "ACTIVE", "DONE"};
+
+    private Datasets() {
+    }
+
+    public static List<Task> tasks(int count) {
+        return tasks(count, 1);
+    }
+
+    /** {@code count} tasks spread round-robin over {@code users} users, starting at USER_ID. */
+    public static List<Task> tasks(int count, int users) {
+        SplittableRandom rnd = new SplittableRandom(42);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task t = new Task();
+            t.id = 1_000 + i;
+            t.userId = USER_ID + i % users;
+            t.title = "Task " + i;
+            t.priority = 1 + rnd.nextInt(5);
+            t.dueDate = rnd.nextInt(4) == 0 ? null : TODAY.plusDays(rnd.nextInt(-10, 60));
+            t.targetMinutes = 15 * (1 + rnd.nextInt(16));
+            t.status = STATUSES[rnd.nextInt(STATUSES.length)];
+            tasks.add(t);
+        }
+        return tasks;
+    }
+
+    /** Actual minutes for about two thirds of the tasks, keyed by task id; the rest have none logged yet. */
+    public static Map<Integer, Integer> actualMinutes(List<Task> tasks) {
+        SplittableRandom rnd = new SplittableRandom(7);
+        Map<Integer, Integer> actual = new HashMap<>();
+        for (Task t : tasks) {
+            if (rnd.nextInt(3) != 0) actual.put(t.id, rnd.nextInt(t.targetMinutes * 2));
+        }
+        return actual;
+    }
+
+    /** Sessions spread over the last {@code days} days, ending today. */
+    public static List<Session> sessions(int count, int days, int taskCount) {
+        SplittableRandom rnd = new SplittableRandom(99);
+        LocalDateTime first = TODAY.minusDays(days - 1L).atTime(6, 0);
+        List<Session> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Session s = new Session();
+            s.id = i + 1;
+            s.userId = USER_ID;
+            s.taskId = 1_000 + rnd.nextInt(taskCount);
+            s.start = first.plusDays(rnd.nextInt(days)).plusMinutes(rnd.nextInt(16 * 60));
+            s.plannedMinutes = 25;
+            s.actualMinutes = 5 + rnd.nextInt(50);
+            s.end = s.start.plusMinutes(s.actualMinutes);
+            s.stoppedManually = rnd.nextInt(5) == 0;
+            sessions.add(s);
+        }
+        return sessions;
+    }
+
+    /** Distinct active days, leaving roughly one gap day in seven. */
+    public static List<LocalDate> activeDays(int days) {
+        SplittableRandom rnd = new SplittableRandom(5);
+        List<LocalDate> active = new ArrayList<>(days);
+        for (int i = days - 1; i >= 0; i--) {
+            if (i == 0 || rnd.nextInt(7) != 0) active.add(TODAY.minusDays(i));
+        }
+        return active;
+    }
+}
@@ -0,0 +1,36 @@
+package com.focusmate.bench;
+
+import com.focusmate.util.PasswordUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PasswordHashBenchmark {
+
+    @Param({"correct horse battery staple"})
+    public String password;
+
+    // 0 is the legacy unsalted SHA-256 format.
+    @Param({"0", "100000"})
+    public int iterations;
+
+    private String stored;
+
+    @Setup
+    public void setup() {
+        stored = PasswordUtil.hash(password, iterations);
+    }
+
+    @Benchmark
+    public String hash() {
+        return PasswordUtil.hash(password, iterations);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return PasswordUtil.verify(password, stored);
+    }
+}
@@ -0,0 +1,34 @@
+package com.focusmate.bench;
+
+import com.focusmate.model.Task;
+import com.focusmate.service.Scheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchedulerBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int tasksPerUser;
+
+    private Scheduler scheduler;
+    private List<Task> tasks;
+    private Map<Integer, Integer> actualMinutes;
+
+    @Setup
+    public void setup() {
+        scheduler = new Scheduler(null);
+        tasks = Datasets.tasks(tasksPerUser);
+        actualMinutes = Datasets.actualMinutes(tasks);
+    }
+
+    @Benchmark
+    public List<Task> rank() {
+        return scheduler.rank(tasks, actualMinutes);
+    }
+}
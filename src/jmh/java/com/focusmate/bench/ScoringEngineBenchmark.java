@@ -0,0 +1,59 @@
+package com.focusmate.bench;
+
+import com.focusmate.model.Task;
+import com.focusmate.model.TaskColumns;
+import com.focusmate.service.Scheduler;
+import com.focusmate.service.ScoringEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranking every user's tasks at once: Scheduler.rank (a Scored object per
+ * task, one List.sort) against ScoringEngine over primitive columns.
+ * {@code engineFromList} includes building the columns from already-loaded
+ * Task objects; in production TaskDAO.listAllColumns fills them while reading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScoringEngineBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int tasks;
+
+    @Param({"1000"})
+    public int users;
+
+    private Scheduler scheduler;
+    private ScoringEngine engine;
+    private List<Task> taskList;
+    private Map<Integer, Integer> actualMinutes;
+    private TaskColumns columns;
+
+    @Setup
+    public void setup() {
+        scheduler = new Scheduler(null);
+        engine = new ScoringEngine(2.0, 1.0, 1.5);
+        taskList = Datasets.tasks(tasks, users);
+        actualMinutes = Datasets.actualMinutes(taskList);
+        columns = TaskColumns.of(taskList, actualMinutes);
+    }
+
+    @Benchmark
+    public List<Task> schedulerRank() {
+        return scheduler.rank(taskList, actualMinutes);
+    }
+
+    @Benchmark
+    public ScoringEngine.Ranking engine() {
+        return engine.rank(columns, Datasets.TODAY);
+    }
+
+    @Benchmark
+    public List<Task> engineFromList() throws Exception {
+        return engine.rank(TaskColumns.of(taskList, actualMinutes), Datasets.TODAY).tasks();
+    }
+}
@@ -0,0 +1,41 @@
+package com.focusmate.bench;
+
+import com.focusmate.service.ActiveDaysIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StreakBenchmark {
+
+    @Param({"30", "365", "1825"})
+    public int daysOfHistory;
+
+    private List<LocalDate> days;
+    private ActiveDaysIndex index;
+
+    @Setup
+    public void setup() {
+        days = Datasets.activeDays(daysOfHistory);
+        index = new ActiveDaysIndex(1, Long.MAX_VALUE);
+        index.seedFromDb(Datasets.USER_ID, days);
+    }
+
+    @Benchmark
+    public void streaks(Blackhole bh) {
+        bh.consume(index.currentStreak(Datasets.USER_ID, Datasets.TODAY));
+        bh.consume(index.longestStreak(Datasets.USER_ID));
+    }
+
+    @Benchmark
+    public int seedAndAnswer() {
+        ActiveDaysIndex fresh = new ActiveDaysIndex(1, Long.MAX_VALUE);
+        fresh.seedFromDb(Datasets.USER_ID, days);
+        return fresh.currentStreak(Datasets.USER_ID, Datasets.TODAY);
+    }
+}
@@ -0,0 +1,64 @@
+package com.focusmate.dao;
+
+import com.focusmate.bench.ArrayResultSet;
+import com.focusmate.bench.Datasets;
+import com.focusmate.model.Session;
+import com.focusmate.model.Task;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** TaskDAO.map and SessionDAO.map over result sets of the given size. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowMappingBenchmark {
+
+    private static final String[] TASK_COLUMNS =
+            {"id", "title", "priority", "due_date", "target_minutes", "status", "user_id"};
+    private static final String[] SESSION_COLUMNS =
+            {"id", "task_id", "user_id", "start_time", "end_time", "planned_minutes", "actual_minutes", "stopped_manually"};
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private final TaskDAO taskDAO = new TaskDAO();
+    private final SessionDAO sessionDAO = new SessionDAO();
+    private Object[][] taskRows;
+    private Object[][] sessionRows;
+
+    @Setup
+    public void setup() {
+        List<Task> tasks = Datasets.tasks(rows);
+        taskRows = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            Task t = tasks.get(i);
+            taskRows[i] = new Object[]{t.id, t.title, t.priority, t.dueDate != null ? Date.valueOf(t.dueDate) : null,
+                    t.targetMinutes, t.status, t.userId};
+        }
+        List<Session> sessions = Datasets.sessions(rows, 365, 200);
+        sessionRows = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            Session s = sessions.get(i);
+            sessionRows[i] = new Object[]{s.id, s.taskId, s.userId, Timestamp.valueOf(s.start), Timestamp.valueOf(s.end),
+                    s.plannedMinutes, s.actualMinutes, s.stoppedManually};
+        }
+    }
+
+    @Benchmark
+    public void mapTasks(Blackhole bh) throws Exception {
+        ResultSet rs = ArrayResultSet.of(TASK_COLUMNS, taskRows);
+        while (rs.next()) bh.consume(taskDAO.map(rs));
+    }
+
+    @Benchmark
+    public void mapSessions(Blackhole bh) throws Exception {
+        ResultSet rs = ArrayResultSet.of(SESSION_COLUMNS, sessionRows);
+        while (rs.next()) bh.consume(sessionDAO.map(rs));
+    }
+}
@@ -1,18 +1,18 @@
 package com.focusmate.controller;
 
-import com.focusmate.dao.SessionDAO;
+import com.focusmate.dao.DailyRollupDAO;
 import com.focusmate.dao.TaskDAO;
-import com.focusmate.model.Session;
+import com.focusmate.model.DailyRollup;
+import com.focusmate.model.SessionColumns;
 import com.focusmate.model.Task;
+import com.focusmate.service.ActiveDaysIndex;
+import com.focusmate.service.UserContext;
 import com.focusmate.store.MemoryStore;
-import jakarta.servlet.http.HttpSession;
-import org.springframework.http.HttpStatus;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,47 +22,50 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class AnalyticsController {
 
-    private static final String SESSION_USER_KEY = "FOCUSMATE_USER_ID";
     private final TaskDAO taskDAO = new TaskDAO();
-    private final SessionDAO sessionDAO = new SessionDAO();
+    private final DailyRollupDAO rollupDAO = new DailyRollupDAO();
+    private final ActiveDaysIndex activeDays = ActiveDaysIndex.SHARED;
 
-    private int getUserId(HttpSession session) {
-        Integer userId = (Integer) session.getAttribute(SESSION_USER_KEY);
-        if (userId == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Login required");
-        }
-        return userId;
+    private int getUserId(HttpServletRequest request) {
+        return UserContext.SHARED.requireUserId(request);
     }
 
     @GetMapping("/summary")
-    public Map<String, Object> summary(HttpSession session) {
-        int userId = getUserId(session);
-        List<Session> sessions;
+    public Map<String, Object> summary(HttpServletRequest request) {
+        int userId = getUserId(request);
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+        long todaySessions;
+        int totalMinutes;
+        int sessionCount;
         List<Task> tasks;
         try {
-            sessions = sessionDAO.listAll(userId);
+            DailyRollup totals = rollupDAO.totals(userId);
+            DailyRollup todayRow = rollupDAO.findDay(userId, today);
+            todaySessions = todayRow != null ? todayRow.sessionCount : 0;
+            totalMinutes = totals.minutes;
+            sessionCount = totals.sessionCount;
+            if (!activeDays.isSeededFromDb(userId)) {
+                activeDays.seedFromDb(userId, rollupDAO.listDays(userId));
+            }
             tasks = taskDAO.listAll(userId);
         } catch (Exception ex) {
-            sessions = MemoryStore.SESSIONS.stream()
-                    .filter(s -> s.userId != null && s.userId.equals(userId))
-                    .toList();
-            tasks = new ArrayList<>(MemoryStore.TASKS.values()).stream()
-                    .filter(t -> t.userId != null && t.userId.equals(userId))
-                    .toList();
+            SessionColumns sessions = MemoryStore.columnsOf(userId);
+            tasks = MemoryStore.tasksOf(userId);
+            todaySessions = sessions.countOnDay(today);
+            totalMinutes = sessions.totalMinutes();
+            sessionCount = sessions.size();
+            if (!activeDays.isSeededFromMemory(userId)) {
+                activeDays.seedFromMemory(userId, sessions.activeDays());
+            }
         }
 
-        LocalDate today = LocalDate.now(ZoneId.systemDefault());
-        long todaySessions = sessions.stream()
-                .filter(s -> s.start != null && s.start.toLocalDate().equals(today))
-                .count();
-
-        int totalMinutes = sessions.stream().mapToInt(s -> s.actualMinutes).sum();
         long totalTasks = tasks.size();
         long doneTasks = tasks.stream().filter(t -> "DONE".equalsIgnoreCase(t.status)).count();
         int completionRate = totalTasks == 0 ? 0 : (int) Math.round((doneTasks * 100.0) / totalTasks);
-        int avgSession = sessions.isEmpty() ? 0 : (int) Math.round(totalMinutes / (double) sessions.size());
+        int avgSession = sessionCount == 0 ? 0 : (int) Math.round(totalMinutes / (double) sessionCount);
 
-        int streak = computeStreak(sessions);
+        int streak = activeDays.currentStreak(userId, LocalDate.now());
+        int longestStreak = activeDays.longestStreak(userId);
 
         Map<String, Object> result = new HashMap<>();
         result.put("todaySessions", todaySessions);
@@ -70,55 +73,46 @@ public class AnalyticsController {
         result.put("completionRate", completionRate);
         result.put("avgSession", avgSession);
         result.put("streak", streak);
+        result.put("longestStreak", longestStreak);
         return result;
     }
 
     @GetMapping("/task/{id}")
-    public Map<String, Object> taskAnalytics(@PathVariable Integer id, HttpSession session) {
-        int userId = getUserId(session);
+    public Map<String, Object> taskAnalytics(@PathVariable Integer id, HttpServletRequest request) {
+        int userId = getUserId(request);
         Task task;
         int actual;
+        int sessions;
         try {
             task = taskDAO.findById(id, userId);
-            actual = sessionDAO.listAll(userId).stream()
-                    .filter(s -> s.taskId != null && s.taskId.equals(id))
-                    .mapToInt(s -> s.actualMinutes)
-                    .sum();
+            actual = task != null ? task.actualMinutes : 0;
+            sessions = task != null ? task.sessionCount : 0;
         } catch (Exception ex) {
-            task = MemoryStore.TASKS.get(id);
-            if (task != null && !task.userId.equals(userId)) {
-                task = null;
-            }
-            actual = MemoryStore.SESSIONS.stream()
-                    .filter(s -> s.userId != null && s.userId.equals(userId))
-                    .filter(s -> s.taskId != null && s.taskId.equals(id))
-                    .mapToInt(s -> s.actualMinutes)
-                    .sum();
+            task = MemoryStore.findTask(id, userId);
+            SessionColumns logged = MemoryStore.columnsOf(userId);
+            actual = logged.minutesForTask(id);
+            sessions = logged.countForTask(id);
         }
 
         int target = task != null ? task.targetMinutes : 0;
         Map<String, Object> result = new HashMap<>();
         result.put("target", target);
         result.put("actual", actual);
+        result.put("sessions", sessions);
         return result;
     }
 
     @GetMapping("/activity")
-    public List<Map<String, Object>> activity(HttpSession session) {
-        int userId = getUserId(session);
-        List<Session> sessions;
+    public List<Map<String, Object>> activity(HttpServletRequest request) {
+        int userId = getUserId(request);
+        java.util.Map<String, Integer> daily = new java.util.LinkedHashMap<>();
         try {
-            sessions = sessionDAO.listAll(userId);
+            for (DailyRollup r : rollupDAO.listAll(userId)) {
+                daily.put(r.day.toString(), r.minutes);
+            }
         } catch (Exception ex) {
-            sessions = MemoryStore.SESSIONS.stream()
-                    .filter(s -> s.userId != null && s.userId.equals(userId))
-                    .toList();
-        }
-        java.util.Map<String, Integer> daily = new java.util.HashMap<>();
-        for (Session s : sessions) {
-            if (s.start == null) continue;
-            String dateKey = s.start.toLocalDate().toString();
-            daily.put(dateKey, daily.getOrDefault(dateKey, 0) + s.actualMinutes);
+            MemoryStore.columnsOf(userId).minutesByDay()
+                    .forEach((day, minutes) -> daily.put(day.toString(), minutes));
         }
         java.util.List<Map<String, Object>> list = new java.util.ArrayList<>();
         for (var entry : daily.entrySet()) {
@@ -129,23 +123,4 @@ public class AnalyticsController {
         }
         return list;
     }
-
-    private int computeStreak(List<Session> sessions) {
-        if (sessions.isEmpty()) return 0;
-        LocalDate today = LocalDate.now();
-        int streak = 0;
-        LocalDate day = today;
-        while (true) {
-            LocalDate d = day;
-            boolean hasSession = sessions.stream()
-                    .anyMatch(s -> s.start != null && s.start.toLocalDate().equals(d));
-            if (hasSession) {
-                streak++;
-                day = day.minusDays(1);
-            } else {
-                break;
-            }
-        }
-        return streak;
-    }
 }
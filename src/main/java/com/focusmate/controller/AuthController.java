@@ -1,41 +1,51 @@
 package com.focusmate.controller;
 
-import com.focusmate.dao.UserDAO;
 import com.focusmate.model.User;
+import com.focusmate.service.AuthService;
+import com.focusmate.service.SessionTokens;
+import com.focusmate.service.UserContext;
+import com.focusmate.util.Config;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "*")
 public class AuthController {
-    private static final String USER_SESSION_KEY = "FOCUSMATE_USER_ID";
-    private final UserDAO userDAO = new UserDAO();
+    private static final String USER_SESSION_KEY = UserContext.SESSION_KEY;
+    private final AuthService authService = AuthService.SHARED;
+    private final UserContext userContext = UserContext.SHARED;
+    private final SessionTokens tokens = SessionTokens.SHARED;
+    private final boolean secureCookie = Config.getBoolean("FOCUSMATE_AUTH_TOKEN_COOKIE_SECURE", true);
 
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody RegisterRequest request, HttpSession session) {
+    public ResponseEntity<?> register(@RequestBody RegisterRequest request, HttpServletRequest http,
+                                      HttpServletResponse response) {
         try {
             if (request.email == null || request.email.isBlank() || request.password == null || request.password.isBlank() || request.name == null || request.name.isBlank()) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(Map.of("error", "Name, email and password are required."));
             }
 
-            if (userDAO.findByEmail(request.email) != null) {
+            User user = authService.register(request.name, request.email, request.password);
+            if (user == null) {
                 return ResponseEntity.status(HttpStatus.CONFLICT)
                         .body(Map.of("error", "Email is already registered."));
             }
-
-            User user = new User();
-            user.email = request.email.trim().toLowerCase();
-            user.name = request.name.trim();
-            user.passwordHash = com.focusmate.util.PasswordUtil.hash(request.password);
-            userDAO.insert(user);
-            session.setAttribute(USER_SESSION_KEY, user.id);
-            return ResponseEntity.status(HttpStatus.CREATED).body(new UserResponse(user));
+            return ResponseEntity.status(HttpStatus.CREATED).body(signIn(user, http, response));
+        } catch (RejectedExecutionException | TimeoutException e) {
+            return busy();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Unable to register user."));
@@ -43,46 +53,101 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request, HttpSession session) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest request, HttpServletRequest http,
+                                   HttpServletResponse response) {
         try {
             if (request.email == null || request.email.isBlank() || request.password == null || request.password.isBlank()) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(Map.of("error", "Email and password are required."));
             }
-            User user = userDAO.authenticate(request.email, request.password);
+            User user = authService.authenticate(request.email, request.password);
             if (user == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Invalid email or password."));
             }
-            session.setAttribute(USER_SESSION_KEY, user.id);
-            return ResponseEntity.ok(new UserResponse(user));
+            return ResponseEntity.ok(signIn(user, http, response));
+        } catch (RejectedExecutionException | TimeoutException e) {
+            return busy();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Login failed."));
         }
     }
 
+    /**
+     * Session mode stores the id in the HttpSession. Token mode creates no
+     * session: the signed token goes out as an HttpOnly cookie for the web
+     * client and in the body for API clients, which send it back as a Bearer
+     * header.
+     */
+    private UserResponse signIn(User user, HttpServletRequest http, HttpServletResponse response) {
+        userContext.remember(user);
+        if (!tokens.isEnabled()) {
+            http.getSession(true).setAttribute(USER_SESSION_KEY, user.id);
+            return new UserResponse(user);
+        }
+        String token = tokens.issue(user.id);
+        response.addHeader(HttpHeaders.SET_COOKIE, tokenCookie(token, Duration.ofSeconds(tokens.ttlSeconds())).toString());
+        return new TokenResponse(user, token);
+    }
+
+    private ResponseCookie tokenCookie(String value, Duration maxAge) {
+        return ResponseCookie.from(SessionTokens.COOKIE, value)
+                .httpOnly(true)
+                .secure(secureCookie)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+    }
+
+    // The password hashing pool is saturated; shed the request rather than queue it behind the storm.
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of("error", "Too many sign-ins right now; please try again."));
+    }
+
+    /** Served from the shared profile cache; MySQL is read at most once per user per TTL. */
     @GetMapping("/me")
-    public ResponseEntity<?> currentUser(HttpSession session) {
-        Integer userId = (Integer) session.getAttribute(USER_SESSION_KEY);
+    public ResponseEntity<?> currentUser(HttpServletRequest http) {
+        Integer userId = userContext.userId(http);
         if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not logged in"));
         }
         try {
-            User user = userDAO.findById(userId);
-            if (user == null) {
+            UserContext.Profile profile = userContext.profile(userId);
+            if (profile == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid session."));
             }
-            return ResponseEntity.ok(new UserResponse(user));
+            return ResponseEntity.ok(new UserResponse(profile));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Unable to load user."));
         }
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpSession session) {
-        session.invalidate();
-        return ResponseEntity.ok(Map.of("success", true));
+    public ResponseEntity<?> logout(HttpServletRequest http) {
+        if (!tokens.isEnabled()) {
+            HttpSession session = http.getSession(false);
+            if (session != null) session.invalidate();
+            return ResponseEntity.ok(Map.of("success", true));
+        }
+        String expired = tokenCookie("", Duration.ZERO).toString();
+        SessionTokens.Claims claims = tokens.verify(http);
+        if (claims != null) {
+            try {
+                tokens.revoke(claims);
+            } catch (Exception e) {
+                // Revoked here but not recorded, so other instances would still accept it.
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.SET_COOKIE, expired)
+                        .body(Map.of("error", "Unable to log out everywhere; please try again."));
+            }
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, expired)
+                .body(Map.of("success", true));
     }
 
     public static class LoginRequest {
@@ -106,5 +171,22 @@ public class AuthController {
             this.email = user.email;
             this.name = user.name;
         }
+
+        public UserResponse(UserContext.Profile profile) {
+            this.id = profile.id();
+            this.email = profile.email();
+            this.name = profile.name();
+        }
+    }
+
+    public static class TokenResponse extends UserResponse {
+        public String token;
+        public long expiresIn;
+
+        public TokenResponse(User user, String token) {
+            super(user);
+            this.token = token;
+            this.expiresIn = SessionTokens.SHARED.ttlSeconds();
+        }
     }
 }
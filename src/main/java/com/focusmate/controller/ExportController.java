@@ -0,0 +1,153 @@
+package com.focusmate.controller;
+
+import com.focusmate.dao.SessionAggregateDAO;
+import com.focusmate.dao.SessionDAO;
+import com.focusmate.dao.TaskDAO;
+import com.focusmate.db.DbHealth;
+import com.focusmate.db.RowWriter;
+import com.focusmate.model.Task;
+import com.focusmate.service.UserContext;
+import com.focusmate.store.MemoryStore;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Full-history downloads. Rows go from a streaming ResultSet (or the fallback
+ * store) straight into the response, so memory use does not grow with the
+ * size of the user's history.
+ *
+ * <p>Once session tiering has compacted some of a user's sessions, the
+ * sessions export covers only the ones still held individually. It then says
+ * so in an X-Focusmate-Compacted-Through header naming the last compacted
+ * day, and links to /session-days, which exports the per-(day, task) totals
+ * that replaced the older sessions.
+ */
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "*", exposedHeaders = {ExportController.COMPACTED_THROUGH, HttpHeaders.LINK})
+public class ExportController {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    static final String COMPACTED_THROUGH = "X-Focusmate-Compacted-Through";
+
+    private final SessionDAO sessionDAO = new SessionDAO();
+    private final TaskDAO taskDAO = new TaskDAO();
+    private final SessionAggregateDAO sessionAggregateDAO = new SessionAggregateDAO();
+
+    private interface Export {
+        void write(RowWriter writer) throws Exception;
+    }
+
+    private int getUserId(HttpServletRequest request) {
+        return UserContext.SHARED.requireUserId(request);
+    }
+
+    @GetMapping("/sessions")
+    public ResponseEntity<StreamingResponseBody> exportSessions(@RequestParam(defaultValue = "ndjson") String format,
+                                                                @RequestParam(defaultValue = "false") boolean gzip,
+                                                                HttpServletRequest request) {
+        int userId = getUserId(request);
+        boolean useDb = DbHealth.SHARED.isAvailable();
+        LocalDate compactedThrough = null;
+        if (useDb) {
+            try {
+                compactedThrough = sessionAggregateDAO.newestDay(userId);
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Database unavailable");
+            }
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (compactedThrough != null) {
+            headers.add(COMPACTED_THROUGH, compactedThrough.toString());
+            headers.add(HttpHeaders.LINK, "</api/export/session-days>; rel=\"related\"");
+        }
+        return stream("sessions", format, gzip, headers, writer -> {
+            if (useDb) {
+                sessionDAO.export(userId, writer);
+                return;
+            }
+            writer.header("id", "taskId", "start", "end", "plannedMinutes", "actualMinutes", "stoppedManually");
+            MemoryStore.forEachSessionOf(userId, s -> {
+                try {
+                    writer.row(s.id, s.taskId, s.start, s.end, s.plannedMinutes, s.actualMinutes, s.stoppedManually);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        });
+    }
+
+    /** Totals per (day, task) of the sessions that tiering compacted; empty until it has run. */
+    @GetMapping("/session-days")
+    public ResponseEntity<StreamingResponseBody> exportSessionDays(@RequestParam(defaultValue = "ndjson") String format,
+                                                                   @RequestParam(defaultValue = "false") boolean gzip,
+                                                                   HttpServletRequest request) {
+        int userId = getUserId(request);
+        if (!DbHealth.SHARED.isAvailable()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Database unavailable");
+        }
+        return stream("session-days", format, gzip, new HttpHeaders(), writer -> sessionAggregateDAO.export(userId, writer));
+    }
+
+    @GetMapping("/tasks")
+    public ResponseEntity<StreamingResponseBody> exportTasks(@RequestParam(defaultValue = "ndjson") String format,
+                                                             @RequestParam(defaultValue = "false") boolean gzip,
+                                                             HttpServletRequest request) {
+        int userId = getUserId(request);
+        boolean useDb = DbHealth.SHARED.isAvailable();
+        return stream("tasks", format, gzip, new HttpHeaders(), writer -> {
+            if (useDb) {
+                taskDAO.export(userId, writer);
+                return;
+            }
+            writer.header("id", "title", "priority", "dueDate", "targetMinutes", "status", "createdAt");
+            for (Task t : MemoryStore.tasksOf(userId)) {
+                writer.row(t.id, t.title, t.priority, t.dueDate, t.targetMinutes, t.status, null);
+            }
+        });
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name, String formatName, boolean gzip,
+                                                         HttpHeaders headers, Export export) {
+        RowWriter.Format format = RowWriter.Format.parse(formatName);
+        if (format == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format (use ndjson or csv)");
+        }
+        String filename = "focusmate-" + name + "." + format.extension + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+            BufferedWriter buffered = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+            try {
+                export.write(RowWriter.of(format, buffered));
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                // Headers are already sent; cutting the stream short is all we can do.
+                System.err.println("⚠️ Export of " + name + " failed: " + e.getMessage());
+                throw new IOException("Export failed", e);
+            }
+            buffered.flush();
+            if (target instanceof GZIPOutputStream gz) gz.finish();
+        };
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.contentType + "; charset=utf-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+}
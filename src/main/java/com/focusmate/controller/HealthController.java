@@ -0,0 +1,99 @@
+package com.focusmate.controller;
+
+import com.focusmate.db.ConnectionPool;
+import com.focusmate.db.DB;
+import com.focusmate.db.DbHealth;
+import com.focusmate.db.SchemaInitializer;
+import com.focusmate.db.SchemaMigrator;
+import com.focusmate.service.AuthService;
+import com.focusmate.service.PriorityIndex;
+import com.focusmate.service.SessionTiering;
+import com.focusmate.service.SessionTokens;
+import com.focusmate.service.SessionWriteBehind;
+import com.focusmate.service.TaskCounterReconciler;
+import com.focusmate.service.TaskListCache;
+import com.focusmate.service.UserContext;
+import com.focusmate.store.MemoryStore;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/health")
+@CrossOrigin(origins = "*")
+public class HealthController {
+
+    @GetMapping("/db")
+    public Map<String, Object> database() {
+        ConnectionPool.Stats pool = DB.pool().stats();
+        Map<String, Object> result = new HashMap<>();
+        result.put("available", DbHealth.SHARED.isAvailable());
+        result.put("circuit", DbHealth.SHARED.stats());
+        result.put("pool", pool);
+        return result;
+    }
+
+    @GetMapping("/ingest")
+    public Map<String, Object> ingest() {
+        return SessionWriteBehind.SHARED.stats();
+    }
+
+    @GetMapping("/cache")
+    public Map<String, Object> cache() {
+        return TaskListCache.SHARED.stats();
+    }
+
+    /** Credential cache, email filter and password hashing pool. */
+    @GetMapping("/auth")
+    public Map<String, Object> auth() {
+        return AuthService.SHARED.stats();
+    }
+
+    /** Profile cache behind /api/auth/me and every controller's caller check. */
+    @GetMapping("/users")
+    public Map<String, Object> users() {
+        return UserContext.SHARED.stats();
+    }
+
+    /** Auth mode, token keys by id, verification failures and revocation polling. */
+    @GetMapping("/tokens")
+    public Map<String, Object> tokens() {
+        return SessionTokens.SHARED.stats();
+    }
+
+    @GetMapping("/priority")
+    public Map<String, Object> priority() {
+        return PriorityIndex.SHARED.stats();
+    }
+
+    /** Runs and findings of the task counter reconciliation. */
+    @GetMapping("/counters")
+    public Map<String, Object> counters() {
+        return TaskCounterReconciler.stats();
+    }
+
+    /** Session tiering runs and the size of the compacted tier. */
+    @GetMapping("/tiering")
+    public Map<String, Object> tiering() {
+        return SessionTiering.stats();
+    }
+
+    /** Applied migrations, and the startup plan check if one ran; EXPLAINs are not re-run per request. */
+    @GetMapping("/schema")
+    public Map<String, Object> schema() throws Exception {
+        Map<String, Object> result = new HashMap<>();
+        result.put("migrations", new SchemaMigrator().history());
+        result.put("plans", SchemaInitializer.startupPlans());
+        return result;
+    }
+
+    @GetMapping("/fallback")
+    public Map<String, Object> fallback() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("tasks", MemoryStore.TASKS.size());
+        result.put("sessions", MemoryStore.SESSIONS.size());
+        result.put("log", MemoryStore.logStats());
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+package com.focusmate.controller;
+
+import com.focusmate.db.DbHealth;
+import com.focusmate.db.RowReader;
+import com.focusmate.service.BulkImporter;
+import com.focusmate.service.UserContext;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bulk upload of historical sessions and tasks. The request body is read as a
+ * stream (JSON array, NDJSON or CSV, optionally Content-Encoding: gzip) and
+ * never held in memory as a whole; the response reports every committed
+ * chunk and the rows that were rejected.
+ */
+@RestController
+@RequestMapping("/api/import")
+@CrossOrigin(origins = "*")
+public class ImportController {
+
+    private final BulkImporter importer = new BulkImporter();
+
+    private interface Import {
+        BulkImporter.Report run(RowReader reader) throws Exception;
+    }
+
+    private int getUserId(HttpServletRequest request) {
+        return UserContext.SHARED.requireUserId(request);
+    }
+
+    @PostMapping("/sessions")
+    public ResponseEntity<?> importSessions(@RequestParam(required = false) String format,
+                                            HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
+        return run(format, request, reader -> importer.importSessions(userId, reader));
+    }
+
+    @PostMapping("/tasks")
+    public ResponseEntity<?> importTasks(@RequestParam(required = false) String format,
+                                         HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
+        return run(format, request, reader -> importer.importTasks(userId, reader));
+    }
+
+    private ResponseEntity<?> run(String formatName, HttpServletRequest request, Import action) throws Exception {
+        RowReader.Format format = RowReader.Format.parse(formatName != null ? formatName : request.getContentType());
+        if (format == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Send JSON, NDJSON or CSV (Content-Type or ?format=json|ndjson|csv)"));
+        }
+        // The fallback store is for keeping the app usable during an outage, not for bulk loads.
+        if (!DbHealth.SHARED.isAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Database unavailable; try the import again later"));
+        }
+        InputStream body = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) body = new GZIPInputStream(body, 8 * 1024);
+        BulkImporter.Report report;
+        try (RowReader reader = RowReader.of(format, body)) {
+            report = action.run(reader);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Could not read upload: " + e.getMessage()));
+        }
+        HttpStatus status;
+        if (report.aborted) {
+            status = DbHealth.SHARED.isAvailable() ? HttpStatus.BAD_REQUEST : HttpStatus.SERVICE_UNAVAILABLE;
+        } else {
+            status = report.inserted > 0 || report.rejected == 0 ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY;
+        }
+        return ResponseEntity.status(status).body(report);
+    }
+}
@@ -0,0 +1,50 @@
+package com.focusmate.controller;
+
+import com.focusmate.db.ConnectionPool;
+import com.focusmate.db.DB;
+import com.focusmate.db.DbHealth;
+import com.focusmate.metrics.Metrics;
+import com.focusmate.service.SessionWriteBehind;
+import com.focusmate.service.TaskListCache;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = "*")
+public class MetricsController {
+
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+
+    @GetMapping
+    public ResponseEntity<String> metrics() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        Metrics.writePrometheus(out);
+
+        ConnectionPool.Stats pool = DB.pool().stats();
+        Metrics.gauge(out, "focusmate_db_pool_active", "Connections currently borrowed", pool.active);
+        Metrics.gauge(out, "focusmate_db_pool_idle", "Idle pooled connections", pool.idle);
+        Metrics.gauge(out, "focusmate_db_pool_waiting", "Threads waiting for a connection", pool.waiting);
+        Metrics.counter(out, "focusmate_db_pool_borrow_timeouts_total", "Borrows that timed out", pool.borrowTimeouts);
+        Metrics.gauge(out, "focusmate_db_available", "1 while the database circuit allows requests",
+                DbHealth.SHARED.isAvailable() ? 1 : 0);
+
+        Map<String, Object> cache = TaskListCache.SHARED.stats();
+        Metrics.counter(out, "focusmate_task_cache_hits_total", "Task list cache hits", number(cache.get("hits")));
+        Metrics.counter(out, "focusmate_task_cache_misses_total", "Task list cache misses", number(cache.get("misses")));
+        Metrics.counter(out, "focusmate_task_cache_evictions_total", "Task list cache evictions", number(cache.get("evictions")));
+
+        Map<String, Object> ingest = SessionWriteBehind.SHARED.stats();
+        Metrics.gauge(out, "focusmate_session_queue_depth", "Sessions waiting for the write-behind writer",
+                number(ingest.get("queueDepth")));
+
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(out.toString());
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number n ? n.doubleValue() : 0;
+    }
+}
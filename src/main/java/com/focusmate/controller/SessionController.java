@@ -1,8 +1,16 @@
 package com.focusmate.controller;
 
 import com.focusmate.dao.SessionDAO;
+import com.focusmate.dao.TaskDAO;
+import com.focusmate.db.DbHealth;
+import com.focusmate.model.PageCursor;
 import com.focusmate.model.Session;
-import jakarta.servlet.http.HttpSession;
+import com.focusmate.service.ActiveDaysIndex;
+import com.focusmate.service.PriorityIndex;
+import com.focusmate.service.SessionWriteBehind;
+import com.focusmate.service.TaskListCache;
+import com.focusmate.service.UserContext;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,20 +25,41 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class SessionController {
 
-    private static final String SESSION_USER_KEY = "FOCUSMATE_USER_ID";
     private final SessionDAO sessionDAO = new SessionDAO();
+    private final TaskDAO taskDAO = new TaskDAO();
+    private final SessionWriteBehind writeBehind = SessionWriteBehind.SHARED;
 
-    private int getUserId(HttpSession session) {
-        Integer userId = (Integer) session.getAttribute(SESSION_USER_KEY);
-        if (userId == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Login required");
+    private int getUserId(HttpServletRequest request) {
+        return UserContext.SHARED.requireUserId(request);
+    }
+
+    /** Newest-first page of the user's sessions; pass the returned nextCursor to continue. */
+    @GetMapping
+    public ResponseEntity<?> listSessions(@RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String cursor,
+                                          HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
+        PageCursor after;
+        try {
+            after = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Invalid cursor"));
+        }
+        int size = PageCursor.limit(limit);
+        if (DbHealth.SHARED.isAvailable()) {
+            try {
+                return ResponseEntity.ok(sessionDAO.listPage(userId, after, size));
+            } catch (Exception ex) {
+                // served from the fallback store below
+            }
         }
-        return userId;
+        return ResponseEntity.ok(com.focusmate.store.MemoryStore.sessionPage(userId, after, size));
     }
 
     @PostMapping
-    public ResponseEntity<Map<String, Object>> createSession(@RequestBody SessionRequest request, HttpSession session) {
-        int userId = getUserId(session);
+    public ResponseEntity<Map<String, Object>> createSession(@RequestBody SessionRequest request, HttpServletRequest http) {
+        int userId = getUserId(http);
         try {
             Session record = new Session();
             record.taskId = request.taskId;
@@ -40,15 +69,36 @@ public class SessionController {
             record.plannedMinutes = request.plannedMinutes;
             record.actualMinutes = request.actualMinutes;
             record.stoppedManually = request.stoppedManually;
-            
+            // A task that is gone or someone else's would fail fk_sessions_task (or never count) once the
+            // session reaches MySQL, which for a queued session is after the caller has been told it was accepted.
+            if (record.taskId != null && !ownsTask(userId, record.taskId)) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", false);
+                response.put("error", "Task not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+
+            boolean queued = false;
             try {
-                sessionDAO.insert(record);
+                if (writeBehind.isEnabled() && DbHealth.SHARED.isAvailable()) {
+                    writeBehind.submit(record);
+                    queued = true;
+                } else {
+                    sessionDAO.insert(record);
+                }
+                PriorityIndex.SHARED.minutesLogged(userId, record.taskId, record.actualMinutes);
+                if (record.taskId != null) TaskListCache.SHARED.invalidate(userId);
             } catch (Exception ex) {
-                com.focusmate.store.MemoryStore.SESSIONS.add(record);
+                com.focusmate.store.MemoryStore.addSession(record);
             }
-            
+            ActiveDaysIndex.SHARED.record(userId, record.start.toLocalDate());
+
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
+            if (queued) {
+                response.put("message", "Session accepted");
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            }
             response.put("message", "Session saved successfully");
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
         } catch (ResponseStatusException ex) {
@@ -61,6 +111,16 @@ public class SessionController {
         }
     }
     
+    /** True unless MySQL says the task is not the user's; while it can't answer, the session falls back as before. */
+    private boolean ownsTask(int userId, int taskId) {
+        if (!DbHealth.SHARED.isAvailable()) return true;
+        try {
+            return taskDAO.findById(taskId, userId) != null;
+        } catch (Exception ex) {
+            return true;
+        }
+    }
+
     public static class SessionRequest {
         public Integer taskId;
         public String start;
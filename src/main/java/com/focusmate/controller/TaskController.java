@@ -1,13 +1,16 @@
 package com.focusmate.controller;
 
 import com.focusmate.dao.TaskDAO;
+import com.focusmate.db.DbHealth;
+import com.focusmate.model.PageCursor;
 import com.focusmate.model.Task;
-import com.focusmate.service.Scheduler;
+import com.focusmate.service.PriorityIndex;
+import com.focusmate.service.TaskListCache;
+import com.focusmate.service.UserContext;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -18,88 +21,115 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class TaskController {
 
-    private static final String SESSION_USER_KEY = "FOCUSMATE_USER_ID";
     private final TaskDAO taskDAO = new TaskDAO();
-    private final Scheduler scheduler = new Scheduler(taskDAO);
+
+    private final DbHealth dbHealth = DbHealth.SHARED;
+    private final TaskListCache taskCache = TaskListCache.SHARED;
+    private final PriorityIndex priorityIndex = PriorityIndex.SHARED;
 
     private boolean dbAvailable() {
-        try {
-            taskDAO.listAll(0);
-            return true;
-        } catch (Exception e) {
-            return false;
+        return dbHealth.isAvailable();
+    }
+
+    private int getUserId(HttpServletRequest request) {
+        return UserContext.SHARED.requireUserId(request);
+    }
+
+    /**
+     * The user's tasks from MySQL (through the cache), or from MemoryStore while
+     * the circuit is open or when a query fails before it has opened.
+     */
+    private List<Task> tasksOf(int userId) {
+        if (dbAvailable()) {
+            try {
+                return taskCache.get(userId, taskDAO::listAll);
+            } catch (Exception ex) {
+                // served from the fallback store below
+            }
         }
+        return com.focusmate.store.MemoryStore.tasksOf(userId);
     }
 
-    private int getUserId(HttpSession session) {
-        Integer userId = (Integer) session.getAttribute(SESSION_USER_KEY);
-        if (userId == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Login required");
+    /** Keyset page of the user's tasks, newest first; 400 for a cursor we did not issue. */
+    private ResponseEntity<?> page(int userId, String status, Integer limit, String cursor) throws Exception {
+        PageCursor after;
+        try {
+            after = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Invalid cursor"));
         }
-        return userId;
+        int size = PageCursor.limit(limit);
+        if (dbAvailable()) {
+            try {
+                return ResponseEntity.ok(taskDAO.listPage(userId, status, after, size));
+            } catch (Exception ex) {
+                // served from the fallback store below
+            }
+        }
+        return ResponseEntity.ok(com.focusmate.store.MemoryStore.taskPage(userId, status, after, size));
     }
 
+    /** Without limit or cursor this returns the full list, as the web UI expects. */
     @GetMapping
-    public ResponseEntity<List<Task>> getAllTasks(HttpSession session) throws Exception {
-        int userId = getUserId(session);
-        if (!dbAvailable()) {
-            return ResponseEntity.ok(com.focusmate.store.MemoryStore.TASKS.values().stream()
-                    .filter(t -> t.userId != null && t.userId.equals(userId)).toList());
-        }
-        return ResponseEntity.ok(taskDAO.listAll(userId));
+    public ResponseEntity<?> getAllTasks(@RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String cursor,
+                                         HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
+        if (limit != null || cursor != null) return page(userId, null, limit, cursor);
+        return ResponseEntity.ok(tasksOf(userId));
     }
 
     @GetMapping("/scheduled")
-    public ResponseEntity<List<Task>> getScheduledTasks(HttpSession session) throws Exception {
-        int userId = getUserId(session);
-        List<Task> allTasks;
-        if (!dbAvailable()) {
-            allTasks = com.focusmate.store.MemoryStore.TASKS.values().stream()
-                    .filter(t -> t.userId != null && t.userId.equals(userId)).toList();
-        } else {
-            allTasks = scheduler.sorted(userId);
+    public ResponseEntity<List<Task>> getScheduledTasks(@RequestParam(required = false) Integer limit,
+                                                        HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
+        int k = limit != null && limit > 0 ? limit : Integer.MAX_VALUE;
+        if (dbAvailable()) {
+            try {
+                return ResponseEntity.ok(priorityIndex.top(userId, k));
+            } catch (Exception ex) {
+                // served from the fallback store below
+            }
         }
-        List<Task> scheduled = allTasks.stream()
+        List<Task> scheduled = com.focusmate.store.MemoryStore.tasksOf(userId).stream()
                 .filter(t -> "PENDING".equals(t.status))
+                .limit(k)
                 .toList();
         return ResponseEntity.ok(scheduled);
     }
 
+    /** The single best task to work on next; 204 when nothing is pending. */
+    @GetMapping("/next")
+    public ResponseEntity<Task> getNextTask(HttpServletRequest request) throws Exception {
+        List<Task> next = getScheduledTasks(1, request).getBody();
+        return next == null || next.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(next.get(0));
+    }
+
     @GetMapping("/completed")
-    public ResponseEntity<List<Task>> getCompletedTasks(HttpSession session) throws Exception {
-        int userId = getUserId(session);
-        List<Task> completed;
-        if (!dbAvailable()) {
-            completed = com.focusmate.store.MemoryStore.TASKS.values().stream()
-                    .filter(t -> t.userId != null && t.userId.equals(userId) && "DONE".equals(t.status))
-                    .toList();
-        } else {
-            completed = taskDAO.listAll(userId).stream()
-                    .filter(t -> "DONE".equals(t.status))
-                    .toList();
-        }
+    public ResponseEntity<?> getCompletedTasks(@RequestParam(required = false) Integer limit,
+                                               @RequestParam(required = false) String cursor,
+                                               HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
+        if (limit != null || cursor != null) return page(userId, "DONE", limit, cursor);
+        List<Task> completed = tasksOf(userId).stream()
+                .filter(t -> "DONE".equals(t.status))
+                .toList();
         return ResponseEntity.ok(completed);
     }
 
     @GetMapping("/pending")
-    public ResponseEntity<List<Task>> getPendingTasks(HttpSession session) throws Exception {
-        int userId = getUserId(session);
-        List<Task> pending;
-        if (!dbAvailable()) {
-            pending = com.focusmate.store.MemoryStore.TASKS.values().stream()
-                    .filter(t -> t.userId != null && t.userId.equals(userId) && !"DONE".equals(t.status))
-                    .toList();
-        } else {
-            pending = taskDAO.listAll(userId).stream()
-                    .filter(t -> !"DONE".equals(t.status))
-                    .toList();
-        }
+    public ResponseEntity<List<Task>> getPendingTasks(HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
+        List<Task> pending = tasksOf(userId).stream()
+                .filter(t -> !"DONE".equals(t.status))
+                .toList();
         return ResponseEntity.ok(pending);
     }
 
     @PostMapping
-    public ResponseEntity<?> createTask(@RequestBody TaskRequest request, HttpSession session) throws Exception {
-        int userId = getUserId(session);
+    public ResponseEntity<?> createTask(@RequestBody TaskRequest request, HttpServletRequest http) throws Exception {
+        int userId = getUserId(http);
         if (request.title == null || request.title.trim().isEmpty()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", "Title is required"));
@@ -112,59 +142,77 @@ public class TaskController {
         task.status = request.status != null ? request.status : "PENDING";
         task.userId = userId;
         if (dbAvailable()) {
-            taskDAO.insert(task);
-        } else {
-            task.id = com.focusmate.store.MemoryStore.TASK_SEQ.getAndIncrement();
-            com.focusmate.store.MemoryStore.TASKS.put(task.id, task);
+            try {
+                taskDAO.insert(task);
+                taskCache.invalidate(userId);
+                priorityIndex.taskChanged(task);
+                return ResponseEntity.status(HttpStatus.CREATED).body(task);
+            } catch (Exception ex) {
+                // kept in the fallback store below
+            }
         }
+        task.id = com.focusmate.store.MemoryStore.TASK_SEQ.getAndIncrement();
+        com.focusmate.store.MemoryStore.putTask(task);
         return ResponseEntity.status(HttpStatus.CREATED).body(task);
     }
 
     @PutMapping("/{id}/status")
-    public ResponseEntity<?> updateStatus(@PathVariable Integer id, @RequestBody StatusUpdate update, HttpSession session) throws Exception {
-        int userId = getUserId(session);
+    public ResponseEntity<?> updateStatus(@PathVariable Integer id, @RequestBody StatusUpdate update, HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
         if (update.status == null || update.status.isBlank()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", "Status is required"));
         }
-        Task task;
+        String status = update.status.trim();
         if (dbAvailable()) {
-            task = taskDAO.findById(id, userId);
-        } else {
-            task = com.focusmate.store.MemoryStore.TASKS.get(id);
-            if (task != null && !task.userId.equals(userId)) task = null;
+            try {
+                Task task = taskDAO.findById(id, userId);
+                if (task == null) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "Task not found"));
+                }
+                task.status = status;
+                taskDAO.update(task);
+                taskCache.invalidate(userId);
+                priorityIndex.taskChanged(task);
+                return ResponseEntity.ok(Map.of("success", true));
+            } catch (Exception ex) {
+                // applied to the fallback store below
+            }
         }
+        Task task = com.focusmate.store.MemoryStore.findTask(id, userId);
         if (task == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Task not found"));
         }
-        task.status = update.status.trim();
-        if (dbAvailable()) {
-            taskDAO.update(task);
-        } else {
-            com.focusmate.store.MemoryStore.TASKS.put(task.id, task);
-        }
+        task.status = status;
+        com.focusmate.store.MemoryStore.putTask(task);
         return ResponseEntity.ok(Map.of("success", true));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteTask(@PathVariable Integer id, HttpSession session) throws Exception {
-        int userId = getUserId(session);
+    public ResponseEntity<?> deleteTask(@PathVariable Integer id, HttpServletRequest request) throws Exception {
+        int userId = getUserId(request);
         if (dbAvailable()) {
-            boolean removed = taskDAO.delete(id, userId);
-            if (!removed) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("error", "Task not found"));
-            }
-            return ResponseEntity.ok(Map.of("success", true));
-        } else {
-            Task removed = com.focusmate.store.MemoryStore.TASKS.remove(id);
-            if (removed == null || removed.userId == null || !removed.userId.equals(userId)) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("error", "Task not found"));
+            try {
+                boolean removed = taskDAO.delete(id, userId);
+                taskCache.invalidate(userId);
+                priorityIndex.taskRemoved(userId, id);
+                if (!removed) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "Task not found"));
+                }
+                return ResponseEntity.ok(Map.of("success", true));
+            } catch (Exception ex) {
+                // tried against the fallback store below
             }
-            return ResponseEntity.ok(Map.of("success", true, "message", "Task deleted"));
         }
+        Task removed = com.focusmate.store.MemoryStore.removeTask(id, userId);
+        if (removed == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Task not found"));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "message", "Task deleted"));
     }
 
     public static class TaskRequest {
@@ -0,0 +1,178 @@
+package com.focusmate.dao;
+
+import com.focusmate.db.DB;
+import com.focusmate.metrics.Metrics;
+import com.focusmate.model.DailyRollup;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DailyRollupDAO {
+    private static final Metrics.Timer ADD = Metrics.dao("DailyRollupDAO.add");
+    private static final Metrics.Timer LIST_ALL = Metrics.dao("DailyRollupDAO.listAll");
+    private static final Metrics.Timer LIST_DAYS = Metrics.dao("DailyRollupDAO.listDays");
+    private static final Metrics.Timer FIND_DAY = Metrics.dao("DailyRollupDAO.findDay");
+    private static final Metrics.Timer TOTALS = Metrics.dao("DailyRollupDAO.totals");
+    private static final Metrics.Timer REBUILD = Metrics.dao("DailyRollupDAO.rebuild");
+
+    /** Adds to a user's day on the caller's connection so it commits together with the session rows. */
+    public void add(Connection c, int userId, LocalDate day, int minutes, int sessions, int manualStops) throws SQLException {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO session_daily_rollup(user_id, day, minutes, session_count, manual_stop_count) VALUES (?,?,?,?,?) " +
+                "ON DUPLICATE KEY UPDATE minutes = minutes + VALUES(minutes), " +
+                "session_count = session_count + VALUES(session_count), " +
+                "manual_stop_count = manual_stop_count + VALUES(manual_stop_count)")) {
+            ps.setInt(1, userId);
+            ps.setDate(2, Date.valueOf(day));
+            ps.setInt(3, minutes);
+            ps.setInt(4, sessions);
+            ps.setInt(5, manualStops);
+            rows = ps.executeUpdate();
+        } finally {
+            ADD.record(start, rows);
+        }
+    }
+
+    public List<DailyRollup> listAll(int userId) throws Exception {
+        long start = System.nanoTime();
+        List<DailyRollup> list = new ArrayList<>();
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement("SELECT * FROM session_daily_rollup WHERE user_id = ? ORDER BY day ASC")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(map(rs));
+            }
+        } finally {
+            LIST_ALL.record(start, list.size());
+        }
+        return list;
+    }
+
+    public List<LocalDate> listDays(int userId) throws Exception {
+        long start = System.nanoTime();
+        List<LocalDate> days = new ArrayList<>();
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT day FROM session_daily_rollup WHERE user_id = ? AND session_count > 0 ORDER BY day ASC")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) days.add(rs.getDate(1).toLocalDate());
+            }
+        } finally {
+            LIST_DAYS.record(start, days.size());
+        }
+        return days;
+    }
+
+    public DailyRollup findDay(int userId, LocalDate day) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement("SELECT * FROM session_daily_rollup WHERE user_id = ? AND day = ?")) {
+            ps.setInt(1, userId);
+            ps.setDate(2, Date.valueOf(day));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    rows = 1;
+                    return map(rs);
+                }
+            }
+        } finally {
+            FIND_DAY.record(start, rows);
+        }
+        return null;
+    }
+
+    /** All-time totals for a user; {@code day} is left null. */
+    public DailyRollup totals(int userId) throws Exception {
+        DailyRollup totals = new DailyRollup();
+        totals.userId = userId;
+        long start = System.nanoTime();
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT COALESCE(SUM(minutes),0), COALESCE(SUM(session_count),0), COALESCE(SUM(manual_stop_count),0) " +
+                     "FROM session_daily_rollup WHERE user_id = ?")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    totals.minutes = rs.getInt(1);
+                    totals.sessionCount = rs.getInt(2);
+                    totals.manualStopCount = rs.getInt(3);
+                }
+            }
+        } finally {
+            TOTALS.record(start, 1);
+        }
+        return totals;
+    }
+
+    public boolean isEmpty() throws Exception {
+        try (Connection c = DB.get();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1 FROM session_daily_rollup LIMIT 1")) {
+            return !rs.next();
+        }
+    }
+
+    /** Recomputes one user's rollup rows from the raw sessions and their compacted days in a single transaction. */
+    public int rebuild(int userId) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement del = c.prepareStatement("DELETE FROM session_daily_rollup WHERE user_id = ?");
+                 PreparedStatement ins = c.prepareStatement(
+                         "INSERT INTO session_daily_rollup(user_id, day, minutes, session_count, manual_stop_count) " +
+                         "SELECT user_id, day, SUM(minutes), SUM(sessions), SUM(manual_stops) FROM (" +
+                         "SELECT user_id, DATE(start_time) AS day, SUM(actual_minutes) AS minutes, COUNT(*) AS sessions, " +
+                         "SUM(stopped_manually) AS manual_stops FROM sessions WHERE user_id = ? GROUP BY user_id, DATE(start_time) " +
+                         "UNION ALL SELECT user_id, day, SUM(minutes), SUM(session_count), SUM(manual_stop_count) " +
+                         "FROM session_day_aggregates WHERE user_id = ? GROUP BY user_id, day" +
+                         ") tiers GROUP BY user_id, day")) {
+                del.setInt(1, userId);
+                del.executeUpdate();
+                ins.setInt(1, userId);
+                ins.setInt(2, userId);
+                rows = ins.executeUpdate();
+                c.commit();
+                return rows;
+            } catch (Exception ex) {
+                c.rollback();
+                rows = 0;
+                throw ex;
+            }
+        } finally {
+            REBUILD.record(start, rows);
+        }
+    }
+
+    /** Rebuilds every user's rollup, one transaction per user to keep lock times short. */
+    public int rebuildAll() throws Exception {
+        List<Integer> userIds = new ArrayList<>();
+        try (Connection c = DB.get();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT user_id FROM sessions WHERE user_id IS NOT NULL " +
+                     "UNION SELECT user_id FROM session_day_aggregates " +
+                     "UNION SELECT user_id FROM session_daily_rollup")) {
+            while (rs.next()) userIds.add(rs.getInt(1));
+        }
+        int rows = 0;
+        for (int userId : userIds) rows += rebuild(userId);
+        return rows;
+    }
+
+    private DailyRollup map(ResultSet rs) throws Exception {
+        DailyRollup r = new DailyRollup();
+        r.userId = rs.getInt("user_id");
+        r.day = rs.getDate("day").toLocalDate();
+        r.minutes = rs.getInt("minutes");
+        r.sessionCount = rs.getInt("session_count");
+        r.manualStopCount = rs.getInt("manual_stop_count");
+        return r;
+    }
+}
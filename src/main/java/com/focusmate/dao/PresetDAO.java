@@ -1,6 +1,7 @@
 package com.focusmate.dao;
 
 import com.focusmate.db.DB;
+import com.focusmate.metrics.Metrics;
 import com.focusmate.model.Preset;
 
 import java.sql.*;
@@ -8,7 +9,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class PresetDAO {
+    private static final Metrics.Timer LIST_ALL = Metrics.dao("PresetDAO.listAll");
+
     public List<Preset> listAll() throws Exception {
+        long start = System.nanoTime();
         List<Preset> presets = new ArrayList<>();
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement("SELECT * FROM presets ORDER BY id ASC");
@@ -23,6 +27,8 @@ public class PresetDAO {
                 p.cyclesBeforeLong = rs.getInt("cycles_before_long");
                 presets.add(p);
             }
+        } finally {
+            LIST_ALL.record(start, presets.size());
         }
         return presets;
     }
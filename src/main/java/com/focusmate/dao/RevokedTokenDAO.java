@@ -0,0 +1,76 @@
+package com.focusmate.dao;
+
+import com.focusmate.db.DB;
+import com.focusmate.metrics.Metrics;
+
+import java.sql.*;
+import java.util.function.BiConsumer;
+
+/** Revoked, not yet expired signed tokens, keyed by token id. */
+public class RevokedTokenDAO {
+    private static final Metrics.Timer INSERT = Metrics.dao("RevokedTokenDAO.insert");
+    private static final Metrics.Timer LIST_SINCE = Metrics.dao("RevokedTokenDAO.forEachRevokedSince");
+    private static final Metrics.Timer DELETE_EXPIRED = Metrics.dao("RevokedTokenDAO.deleteExpired");
+
+    /** Revoking the same token twice is not an error. */
+    public void insert(String tokenId, int userId, long expiresAtEpochSecond) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement(
+                     "INSERT IGNORE INTO revoked_tokens(token_id, user_id, expires_at) VALUES (?,?,?)")) {
+            ps.setString(1, tokenId);
+            ps.setInt(2, userId);
+            ps.setLong(3, expiresAtEpochSecond);
+            rows = ps.executeUpdate();
+        } finally {
+            INSERT.record(start, rows);
+        }
+    }
+
+    /**
+     * Passes the token id and expiry (epoch seconds) of every unexpired
+     * revocation recorded at or after {@code since} (all of them when null) to
+     * {@code sink}, and returns the latest revoked_at seen, or {@code since}
+     * if there were none.
+     */
+    public Timestamp forEachRevokedSince(Timestamp since, long nowEpochSecond, BiConsumer<String, Long> sink)
+            throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        Timestamp latest = since;
+        String sql = "SELECT token_id, expires_at, revoked_at FROM revoked_tokens WHERE expires_at > ?"
+                + (since != null ? " AND revoked_at >= ?" : "");
+        try (Connection c = DB.get(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, nowEpochSecond);
+            if (since != null) ps.setTimestamp(2, since);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(rs.getString(1), rs.getLong(2));
+                    Timestamp revokedAt = rs.getTimestamp(3);
+                    if (revokedAt != null && (latest == null || revokedAt.after(latest))) latest = revokedAt;
+                    rows++;
+                }
+            }
+        } finally {
+            LIST_SINCE.record(start, rows);
+        }
+        return latest;
+    }
+
+    /** Deletes up to {@code limit} expired rows; returns how many went. */
+    public int deleteExpired(long nowEpochSecond, int limit) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement(
+                     "DELETE FROM revoked_tokens WHERE expires_at <= ? LIMIT ?")) {
+            ps.setLong(1, nowEpochSecond);
+            ps.setInt(2, limit);
+            rows = ps.executeUpdate();
+        } finally {
+            DELETE_EXPIRED.record(start, rows);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,102 @@
+package com.focusmate.dao;
+
+import com.focusmate.db.DB;
+import com.focusmate.db.RowWriter;
+import com.focusmate.metrics.Metrics;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Per-(user, task, day) totals of sessions that have left the raw sessions table. */
+public class SessionAggregateDAO {
+    private static final Metrics.Timer ADD = Metrics.dao("SessionAggregateDAO.add");
+    private static final Metrics.Timer TOTALS = Metrics.dao("SessionAggregateDAO.totals");
+    private static final Metrics.Timer NEWEST_DAY = Metrics.dao("SessionAggregateDAO.newestDay");
+    private static final Metrics.Timer EXPORT = Metrics.dao("SessionAggregateDAO.export");
+
+    /** Marks sessions without a task, which cannot be part of the primary key as NULL. */
+    public static final int NO_TASK = 0;
+
+    /** Adds to a (user, task, day) row on the caller's connection so it commits together with the delete of the raw rows. */
+    public void add(Connection c, int userId, int taskId, LocalDate day, int minutes, int plannedMinutes,
+                    int sessions, int manualStops) throws SQLException {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO session_day_aggregates(user_id, task_id, day, minutes, planned_minutes, session_count, manual_stop_count) " +
+                "VALUES (?,?,?,?,?,?,?) ON DUPLICATE KEY UPDATE minutes = minutes + VALUES(minutes), " +
+                "planned_minutes = planned_minutes + VALUES(planned_minutes), " +
+                "session_count = session_count + VALUES(session_count), " +
+                "manual_stop_count = manual_stop_count + VALUES(manual_stop_count)")) {
+            ps.setInt(1, userId);
+            ps.setInt(2, taskId);
+            ps.setDate(3, Date.valueOf(day));
+            ps.setInt(4, minutes);
+            ps.setInt(5, plannedMinutes);
+            ps.setInt(6, sessions);
+            ps.setInt(7, manualStops);
+            rows = ps.executeUpdate();
+        } finally {
+            ADD.record(start, rows);
+        }
+    }
+
+    /** The latest day with compacted sessions of the user, or null if none have been compacted. */
+    public LocalDate newestDay(int userId) throws Exception {
+        long start = System.nanoTime();
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement("SELECT MAX(day) FROM session_day_aggregates WHERE user_id = ?")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                Date day = rs.getDate(1);
+                return day != null ? day.toLocalDate() : null;
+            }
+        } finally {
+            NEWEST_DAY.record(start, 1);
+        }
+    }
+
+    /** Streams the user's compacted days, oldest first, to the writer; returns the row count. */
+    public long export(int userId, RowWriter writer) throws Exception {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Connection c = DB.get();
+             PreparedStatement ps = RowWriter.streaming(c,
+                     "SELECT day, NULLIF(task_id, " + NO_TASK + ") AS taskId, session_count AS sessions, " +
+                     "planned_minutes AS plannedMinutes, minutes AS actualMinutes, manual_stop_count AS stoppedManually " +
+                     "FROM session_day_aggregates WHERE user_id = ? ORDER BY day, task_id")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rows = writer.copy(rs);
+            }
+        } finally {
+            EXPORT.record(start, rows);
+        }
+        return rows;
+    }
+
+    /** Row and session counts of the cold tier and the days it spans. */
+    public Map<String, Object> totals() throws Exception {
+        long start = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        try (Connection c = DB.get();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*), COALESCE(SUM(session_count),0), COALESCE(SUM(minutes),0), " +
+                     "MIN(day), MAX(day) FROM session_day_aggregates")) {
+            rs.next();
+            result.put("rows", rs.getLong(1));
+            result.put("sessions", rs.getLong(2));
+            result.put("minutes", rs.getLong(3));
+            Date oldest = rs.getDate(4);
+            Date newest = rs.getDate(5);
+            result.put("oldestDay", oldest != null ? oldest.toLocalDate().toString() : null);
+            result.put("newestDay", newest != null ? newest.toLocalDate().toString() : null);
+        } finally {
+            TOTALS.record(start, 1);
+        }
+        return result;
+    }
+}
@@ -1,33 +1,142 @@
 package com.focusmate.dao;
 
 import com.focusmate.db.DB;
+import com.focusmate.db.RowWriter;
+import com.focusmate.metrics.Metrics;
+import com.focusmate.model.Page;
+import com.focusmate.model.PageCursor;
 import com.focusmate.model.Session;
 
+import java.io.IOException;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class SessionDAO {
+    private static final Metrics.Timer INSERT = Metrics.dao("SessionDAO.insert");
+    private static final Metrics.Timer INSERT_BATCH = Metrics.dao("SessionDAO.insertBatch");
+    private static final Metrics.Timer LIST_ALL = Metrics.dao("SessionDAO.listAll");
+    private static final Metrics.Timer LIST_PAGE = Metrics.dao("SessionDAO.listPage");
+    private static final Metrics.Timer EXPORT = Metrics.dao("SessionDAO.export");
+    private static final Metrics.Timer COMPACT = Metrics.dao("SessionDAO.compact");
+
+    private final DailyRollupDAO rollupDAO = new DailyRollupDAO();
+    private final TaskDAO taskDAO = new TaskDAO();
+    private final SessionAggregateDAO aggregateDAO = new SessionAggregateDAO();
+
+    private static final String INSERT_SQL =
+            "INSERT INTO sessions(task_id, user_id, start_time, end_time, planned_minutes, actual_minutes, stopped_manually) VALUES (?,?,?,?,?,?,?)";
+
     public void insert(Session s) throws Exception {
-        try (Connection c = DB.get();
-             PreparedStatement ps = c.prepareStatement(
-                     "INSERT INTO sessions(task_id, user_id, start_time, end_time, planned_minutes, actual_minutes, stopped_manually) VALUES (?,?,?,?,?,?,?)")) {
-            if (s.taskId == null)
-                ps.setNull(1, Types.INTEGER);
-            else
-                ps.setInt(1, s.taskId);
-            if (s.userId == null)
-                ps.setNull(2, Types.INTEGER);
-            else
-                ps.setInt(2, s.userId);
-            ps.setTimestamp(3, Timestamp.valueOf(s.start));
-            ps.setTimestamp(4, Timestamp.valueOf(s.end));
-            ps.setInt(5, s.plannedMinutes);
-            ps.setInt(6, s.actualMinutes);
-            ps.setBoolean(7, s.stoppedManually);
-            ps.executeUpdate();
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+                // Counter first: the insert's foreign key check share-locks the task row, and upgrading
+                // that lock afterwards deadlocks two sessions logged against the same task.
+                if (s.userId != null && s.taskId != null) taskDAO.addLogged(c, s.taskId, s.userId, s.actualMinutes, 1);
+                bind(ps, s);
+                rows = ps.executeUpdate();
+                if (s.userId != null) {
+                    rollupDAO.add(c, s.userId, s.start.toLocalDate(), s.actualMinutes, 1, s.stoppedManually ? 1 : 0);
+                }
+                c.commit();
+            } catch (Exception ex) {
+                c.rollback();
+                rows = 0;
+                throw ex;
+            }
+        } finally {
+            INSERT.record(start, rows);
+        }
+    }
+
+    /** Inserts all sessions, their rollup deltas and task counters in one transaction using a JDBC batch. */
+    public void insertBatch(List<Session> sessions) throws Exception {
+        if (sessions.isEmpty()) return;
+        Map<RollupKey, int[]> rollups = new HashMap<>();
+        // Sorted so that concurrent batches lock task rows in the same order.
+        Map<TaskKey, int[]> taskTotals = new TreeMap<>();
+        for (Session s : sessions) {
+            if (s.userId == null) continue;
+            int[] delta = rollups.computeIfAbsent(new RollupKey(s.userId, s.start.toLocalDate()), k -> new int[3]);
+            delta[0] += s.actualMinutes;
+            delta[1]++;
+            if (s.stoppedManually) delta[2]++;
+            if (s.taskId != null) {
+                int[] logged = taskTotals.computeIfAbsent(new TaskKey(s.taskId, s.userId), k -> new int[2]);
+                logged[0] += s.actualMinutes;
+                logged[1]++;
+            }
+        }
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+                // Task rows before the inserts, as in insert().
+                for (Map.Entry<TaskKey, int[]> e : taskTotals.entrySet()) {
+                    taskDAO.addLogged(c, e.getKey().taskId, e.getKey().userId, e.getValue()[0], e.getValue()[1]);
+                }
+                for (Session s : sessions) {
+                    bind(ps, s);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                rows = sessions.size();
+                for (Map.Entry<RollupKey, int[]> e : rollups.entrySet()) {
+                    int[] d = e.getValue();
+                    rollupDAO.add(c, e.getKey().userId, e.getKey().day, d[0], d[1], d[2]);
+                }
+                c.commit();
+            } catch (Exception ex) {
+                c.rollback();
+                rows = 0;
+                throw ex;
+            }
+        } finally {
+            INSERT_BATCH.record(start, rows);
+        }
+    }
+
+    private void bind(PreparedStatement ps, Session s) throws SQLException {
+        if (s.taskId == null)
+            ps.setNull(1, Types.INTEGER);
+        else
+            ps.setInt(1, s.taskId);
+        if (s.userId == null)
+            ps.setNull(2, Types.INTEGER);
+        else
+            ps.setInt(2, s.userId);
+        ps.setTimestamp(3, Timestamp.valueOf(s.start));
+        ps.setTimestamp(4, Timestamp.valueOf(s.end));
+        ps.setInt(5, s.plannedMinutes);
+        ps.setInt(6, s.actualMinutes);
+        ps.setBoolean(7, s.stoppedManually);
+    }
+
+    private record RollupKey(int userId, LocalDate day) {
+    }
+
+    private record AggregateKey(int userId, int taskId, LocalDate day) {
+    }
+
+    private record TaskKey(int taskId, int userId) implements Comparable<TaskKey> {
+        @Override
+        public int compareTo(TaskKey o) {
+            int c = Integer.compare(taskId, o.taskId);
+            return c != 0 ? c : Integer.compare(userId, o.userId);
         }
     }
 
     public java.util.List<Session> listAll(int userId) throws Exception {
+        long start = System.nanoTime();
         java.util.List<Session> sessions = new java.util.ArrayList<>();
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement("SELECT * FROM sessions WHERE user_id = ? ORDER BY start_time DESC")) {
@@ -38,11 +147,155 @@ public class SessionDAO {
                     sessions.add(s);
                 }
             }
+        } finally {
+            LIST_ALL.record(start, sessions.size());
         }
         return sessions;
     }
 
-    private Session map(ResultSet rs) throws Exception {
+    /** Newest-first page of the user's sessions, seeking on (start_time, id). */
+    public Page<Session> listPage(int userId, PageCursor after, int limit) throws Exception {
+        long start = System.nanoTime();
+        String sql = "SELECT * FROM sessions WHERE user_id = ?"
+                + (after != null ? " AND (start_time < ? OR (start_time = ? AND id < ?))" : "")
+                + " ORDER BY start_time DESC, id DESC LIMIT ?";
+        List<Session> items = new ArrayList<>(limit);
+        String next = null;
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            int idx = 1;
+            ps.setInt(idx++, userId);
+            if (after != null) {
+                Timestamp time = Timestamp.valueOf(after.time());
+                ps.setTimestamp(idx++, time);
+                ps.setTimestamp(idx++, time);
+                ps.setInt(idx++, after.id());
+            }
+            ps.setInt(idx, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (items.size() == limit) {
+                        Session last = items.get(limit - 1);
+                        next = new PageCursor(last.start, last.id).encode();
+                        break;
+                    }
+                    items.add(map(rs));
+                }
+            }
+        } finally {
+            LIST_PAGE.record(start, items.size());
+        }
+        return new Page<>(items, next);
+    }
+
+    /** Streams every session of the user, oldest first, to the writer; returns the row count. */
+    public long export(int userId, RowWriter writer) throws Exception {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Connection c = DB.get();
+             PreparedStatement ps = RowWriter.streaming(c,
+                     "SELECT id, task_id AS taskId, start_time AS `start`, end_time AS `end`, " +
+                     "planned_minutes AS plannedMinutes, actual_minutes AS actualMinutes, " +
+                     "stopped_manually AS stoppedManually FROM sessions WHERE user_id = ? ORDER BY start_time, id")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rows = writer.copy(rs);
+            }
+        } finally {
+            EXPORT.record(start, rows);
+        }
+        return rows;
+    }
+
+    /** Receives the sessions {@link #compact} moves out; sync() must make them durable before the delete commits. */
+    public interface ColdSink {
+        void accept(Session s) throws IOException;
+
+        void sync() throws IOException;
+    }
+
+    /** Smallest and largest session id, or null when the table is empty. */
+    public int[] idBounds() throws Exception {
+        try (Connection c = DB.get();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(id), MAX(id) FROM sessions")) {
+            rs.next();
+            if (rs.getObject(1) == null) return null;
+            return new int[]{rs.getInt(1), rs.getInt(2)};
+        }
+    }
+
+    /**
+     * Moves the sessions with ids in [fromId, toId) that started before the
+     * cutoff into session_day_aggregates, in one transaction: the rows are
+     * handed to the sink (if any), added to their (user, task, day) totals
+     * and deleted, so readers that combine both tables see every session
+     * exactly once. Runs at READ COMMITTED so that only the moved rows stay
+     * locked and no gap lock holds up inserts. Sessions without a user are
+     * left alone. Returns the number of sessions moved.
+     */
+    public int compact(int fromId, int toId, LocalDateTime cutoff, ColdSink sink) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get()) {
+            int isolation = c.getTransactionIsolation();
+            c.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            c.setAutoCommit(false);
+            try (PreparedStatement select = c.prepareStatement(
+                         "SELECT * FROM sessions WHERE id >= ? AND id < ? AND start_time < ? AND user_id IS NOT NULL FOR UPDATE");
+                 PreparedStatement delete = c.prepareStatement(
+                         "DELETE FROM sessions WHERE id >= ? AND id < ? AND start_time < ? AND user_id IS NOT NULL")) {
+                Map<AggregateKey, int[]> totals = new HashMap<>();
+                select.setInt(1, fromId);
+                select.setInt(2, toId);
+                select.setTimestamp(3, Timestamp.valueOf(cutoff));
+                int selected = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        Session s = map(rs);
+                        selected++;
+                        if (sink != null) sink.accept(s);
+                        AggregateKey key = new AggregateKey(s.userId,
+                                s.taskId != null ? s.taskId : SessionAggregateDAO.NO_TASK, s.start.toLocalDate());
+                        int[] d = totals.computeIfAbsent(key, k -> new int[4]);
+                        d[0] += s.actualMinutes;
+                        d[1] += s.plannedMinutes;
+                        d[2]++;
+                        if (s.stoppedManually) d[3]++;
+                    }
+                }
+                if (selected == 0) {
+                    c.rollback();
+                    return 0;
+                }
+                for (Map.Entry<AggregateKey, int[]> e : totals.entrySet()) {
+                    AggregateKey k = e.getKey();
+                    int[] d = e.getValue();
+                    aggregateDAO.add(c, k.userId, k.taskId, k.day, d[0], d[1], d[2], d[3]);
+                }
+                delete.setInt(1, fromId);
+                delete.setInt(2, toId);
+                delete.setTimestamp(3, Timestamp.valueOf(cutoff));
+                int deleted = delete.executeUpdate();
+                if (deleted != selected) {
+                    throw new IllegalStateException("Deleted " + deleted + " sessions but aggregated " + selected);
+                }
+                if (sink != null) sink.sync();
+                c.commit();
+                rows = deleted;
+                return rows;
+            } catch (Exception ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setTransactionIsolation(isolation);
+            }
+        } finally {
+            COMPACT.record(start, rows);
+        }
+    }
+
+    Session map(ResultSet rs) throws Exception {
         Session s = new Session();
         s.id = rs.getInt("id");
         s.taskId = rs.getInt("task_id");
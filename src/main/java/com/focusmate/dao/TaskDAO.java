@@ -1,39 +1,98 @@
 package com.focusmate.dao;
 
 import com.focusmate.db.DB;
+import com.focusmate.db.RowWriter;
+import com.focusmate.metrics.Metrics;
+import com.focusmate.model.Page;
+import com.focusmate.model.PageCursor;
 import com.focusmate.model.Task;
+import com.focusmate.model.TaskColumns;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TaskDAO {
+    private static final Metrics.Timer INSERT = Metrics.dao("TaskDAO.insert");
+    private static final Metrics.Timer INSERT_BATCH = Metrics.dao("TaskDAO.insertBatch");
+    private static final Metrics.Timer UPDATE = Metrics.dao("TaskDAO.update");
+    private static final Metrics.Timer LIST_ALL = Metrics.dao("TaskDAO.listAll");
+    private static final Metrics.Timer LIST_PAGE = Metrics.dao("TaskDAO.listPage");
+    private static final Metrics.Timer EXPORT = Metrics.dao("TaskDAO.export");
+    private static final Metrics.Timer LIST_ALL_USERS = Metrics.dao("TaskDAO.listAllUsers");
+    private static final Metrics.Timer LIST_ALL_COLUMNS = Metrics.dao("TaskDAO.listAllColumns");
+    private static final Metrics.Timer FIND_BY_ID = Metrics.dao("TaskDAO.findById");
+    private static final Metrics.Timer FIND_BY_IDS = Metrics.dao("TaskDAO.findByIds");
+    private static final Metrics.Timer DELETE = Metrics.dao("TaskDAO.delete");
+    private static final Metrics.Timer ADD_LOGGED = Metrics.dao("TaskDAO.addLogged");
+    private static final Metrics.Timer COUNTER_DRIFT = Metrics.dao("TaskDAO.listCounterDrift");
+    private static final Metrics.Timer RECONCILE = Metrics.dao("TaskDAO.reconcileCounters");
+    private static final Metrics.Timer RECOMPUTE_RANGE = Metrics.dao("TaskDAO.recomputeCounters");
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tasks(title,priority,due_date,target_minutes,status,user_id) VALUES (?,?,?,?,?,?)";
+
     public void insert(Task t) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
         try (Connection c = DB.get();
-             PreparedStatement ps = c.prepareStatement(
-                     "INSERT INTO tasks(title,priority,due_date,target_minutes,status,user_id) VALUES (?,?,?,?,?,?)",
-                     Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, t.title);
-            ps.setInt(2, t.priority);
-            if (t.dueDate == null)
-                ps.setNull(3, Types.DATE);
-            else
-                ps.setDate(3, Date.valueOf(t.dueDate));
-            ps.setInt(4, t.targetMinutes);
-            ps.setString(5, t.status == null ? "PENDING" : t.status);
-            if (t.userId == null) {
-                ps.setNull(6, Types.INTEGER);
-            } else {
-                ps.setInt(6, t.userId);
-            }
-            ps.executeUpdate();
+             PreparedStatement ps = c.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bind(ps, t);
+            rows = ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) t.id = rs.getInt(1);
             }
+        } finally {
+            INSERT.record(start, rows);
+        }
+    }
+
+    /** Inserts all tasks in one transaction using a JDBC batch; ids are not read back. */
+    public void insertBatch(List<Task> tasks) throws Exception {
+        if (tasks.isEmpty()) return;
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(INSERT_SQL)) {
+                for (Task t : tasks) {
+                    bind(ps, t);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+                rows = tasks.size();
+            } catch (Exception ex) {
+                c.rollback();
+                throw ex;
+            }
+        } finally {
+            INSERT_BATCH.record(start, rows);
+        }
+    }
+
+    private void bind(PreparedStatement ps, Task t) throws SQLException {
+        ps.setString(1, t.title);
+        ps.setInt(2, t.priority);
+        if (t.dueDate == null)
+            ps.setNull(3, Types.DATE);
+        else
+            ps.setDate(3, Date.valueOf(t.dueDate));
+        ps.setInt(4, t.targetMinutes);
+        ps.setString(5, t.status == null ? "PENDING" : t.status);
+        if (t.userId == null) {
+            ps.setNull(6, Types.INTEGER);
+        } else {
+            ps.setInt(6, t.userId);
         }
     }
 
     public void update(Task t) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement(
                      "UPDATE tasks SET title=?, priority=?, due_date=?, target_minutes=?, status=? WHERE id=? AND user_id=?")) {
@@ -47,11 +106,14 @@ public class TaskDAO {
             ps.setString(5, t.status);
             ps.setInt(6, t.id);
             ps.setInt(7, t.userId != null ? t.userId : 0);
-            ps.executeUpdate();
+            rows = ps.executeUpdate();
+        } finally {
+            UPDATE.record(start, rows);
         }
     }
 
     public List<Task> listAll(int userId) throws Exception {
+        long start = System.nanoTime();
         List<Task> list = new ArrayList<>();
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement("SELECT * FROM tasks WHERE user_id = ? ORDER BY created_at DESC")) {
@@ -59,56 +121,362 @@ public class TaskDAO {
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(map(rs));
             }
+        } finally {
+            LIST_ALL.record(start, list.size());
         }
         return list;
     }
 
+    /**
+     * Newest-first page of the user's tasks, optionally restricted to one status.
+     * Seeks on (created_at, id) so every page costs the same however deep it is.
+     */
+    public Page<Task> listPage(int userId, String status, PageCursor after, int limit) throws Exception {
+        long start = System.nanoTime();
+        StringBuilder sql = new StringBuilder("SELECT * FROM tasks WHERE user_id = ?");
+        if (status != null) sql.append(" AND status = ?");
+        if (after != null) sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        List<Task> items = new ArrayList<>(limit);
+        String next = null;
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement(sql.toString())) {
+            int idx = 1;
+            ps.setInt(idx++, userId);
+            if (status != null) ps.setString(idx++, status);
+            if (after != null) {
+                Timestamp time = Timestamp.valueOf(after.time());
+                ps.setTimestamp(idx++, time);
+                ps.setTimestamp(idx++, time);
+                ps.setInt(idx++, after.id());
+            }
+            ps.setInt(idx, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                LocalDateTime lastCreated = null;
+                while (rs.next()) {
+                    if (items.size() == limit) {
+                        next = new PageCursor(lastCreated, items.get(limit - 1).id).encode();
+                        break;
+                    }
+                    items.add(map(rs));
+                    lastCreated = rs.getTimestamp("created_at").toLocalDateTime();
+                }
+            }
+        } finally {
+            LIST_PAGE.record(start, items.size());
+        }
+        return new Page<>(items, next);
+    }
+
+    /** Streams every task of the user, oldest first, to the writer; returns the row count. */
+    public long export(int userId, RowWriter writer) throws Exception {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Connection c = DB.get();
+             PreparedStatement ps = RowWriter.streaming(c,
+                     "SELECT id, title, priority, due_date AS dueDate, target_minutes AS targetMinutes, " +
+                     "status, created_at AS createdAt FROM tasks WHERE user_id = ? ORDER BY created_at, id")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rows = writer.copy(rs);
+            }
+        } finally {
+            EXPORT.record(start, rows);
+        }
+        return rows;
+    }
+
     public List<Task> listAll() throws Exception {
+        long start = System.nanoTime();
         List<Task> list = new ArrayList<>();
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement("SELECT * FROM tasks ORDER BY created_at DESC");
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) list.add(map(rs));
+        } finally {
+            LIST_ALL_USERS.record(start, list.size());
         }
         return list;
     }
 
+    /**
+     * All tasks with their logged minutes, straight into columns, for ranking
+     * every user at once. Only the id and the scored fields are read; the
+     * columns fetch whole tasks through {@link #findByIds} when asked for them.
+     */
+    public TaskColumns listAllColumns() throws Exception {
+        long start = System.nanoTime();
+        TaskColumns columns = new TaskColumns(1_024, this::findByIds);
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT id, user_id, priority, DATEDIFF(due_date, '1970-01-01'), target_minutes, actual_minutes " +
+                     "FROM tasks ORDER BY created_at DESC, id DESC");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int userId = rs.getInt(2);
+                if (rs.wasNull()) userId = TaskColumns.NONE;
+                int due = rs.getInt(4);
+                if (rs.wasNull()) due = TaskColumns.NONE;
+                columns.addRow(rs.getInt(1), userId, rs.getInt(3), due, rs.getInt(5), rs.getInt(6));
+            }
+        } finally {
+            LIST_ALL_COLUMNS.record(start, columns.size());
+        }
+        return columns;
+    }
+
+
+    /** Tasks by id, any owner, in IN lists of at most 1000 ids; ids without a task are left out. */
+    public Map<Integer, Task> findByIds(int[] ids) throws Exception {
+        long start = System.nanoTime();
+        Map<Integer, Task> found = new HashMap<>();
+        try (Connection c = DB.get()) {
+            for (int from = 0; from < ids.length; from += 1_000) {
+                int to = Math.min(ids.length, from + 1_000);
+                StringBuilder sql = new StringBuilder("SELECT * FROM tasks WHERE id IN (");
+                for (int i = from; i < to; i++) sql.append(i == from ? "?" : ",?");
+                sql.append(")");
+                try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                    for (int i = from; i < to; i++) ps.setInt(i - from + 1, ids[i]);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            Task t = map(rs);
+                            found.put(t.id, t);
+                        }
+                    }
+                }
+            }
+        } finally {
+            FIND_BY_IDS.record(start, found.size());
+        }
+        return found;
+    }
 
     public Task findById(int id, int userId) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement("SELECT * FROM tasks WHERE id = ? AND user_id = ?")) {
             ps.setInt(1, id);
             ps.setInt(2, userId);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return map(rs);
+                if (rs.next()) {
+                    rows = 1;
+                    return map(rs);
+                }
             }
+        } finally {
+            FIND_BY_ID.record(start, rows);
         }
         return null;
     }
 
     public boolean delete(int id, int userId) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement("DELETE FROM tasks WHERE id = ? AND user_id = ?")) {
             ps.setInt(1, id);
             ps.setInt(2, userId);
-            return ps.executeUpdate() > 0;
+            rows = ps.executeUpdate();
+            return rows > 0;
+        } finally {
+            DELETE.record(start, rows);
+        }
+    }
+
+    /**
+     * Adds a session's minutes to its task's counters on the caller's
+     * connection, so they commit together with the session row. Only the
+     * task's owner moves its counters.
+     */
+    public void addLogged(Connection c, int taskId, int userId, int minutes, int sessions) throws SQLException {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE tasks SET actual_minutes = actual_minutes + ?, session_count = session_count + ? " +
+                "WHERE id = ? AND user_id = ?")) {
+            ps.setInt(1, minutes);
+            ps.setInt(2, sessions);
+            ps.setInt(3, taskId);
+            ps.setInt(4, userId);
+            rows = ps.executeUpdate();
+        } finally {
+            ADD_LOGGED.record(start, rows);
         }
     }
 
-    public int getActualMinutes(int taskId, int userId) throws Exception {
+    /** A task's counters as stored and as recomputed from its owner's sessions. */
+    public record CounterFix(int taskId, int userId, int storedMinutes, int storedSessions, int minutes, int sessions) {
+        public boolean drifted() {
+            return storedMinutes != minutes || storedSessions != sessions;
+        }
+    }
+
+    /**
+     * Ids of tasks whose counters disagree with their sessions, raw and
+     * compacted, in one consistent read. Sessions committing meanwhile can
+     * show up here without real drift; {@link #reconcileCounters} tells the
+     * two apart.
+     */
+    public List<Integer> listCounterDrift() throws Exception {
+        long start = System.nanoTime();
+        List<Integer> ids = new ArrayList<>();
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement(
-                     "SELECT COALESCE(SUM(actual_minutes),0) FROM sessions WHERE task_id=? AND user_id=?")) {
-            ps.setInt(1, taskId);
-            ps.setInt(2, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                rs.next();
-                return rs.getInt(1);
+                     "SELECT t.id FROM tasks t LEFT JOIN (" +
+                     "SELECT task_id, SUM(minutes) AS minutes, SUM(sessions) AS sessions FROM (" +
+                     "SELECT s.task_id, SUM(s.actual_minutes) AS minutes, COUNT(*) AS sessions FROM sessions s " +
+                     "JOIN tasks o ON o.id = s.task_id AND o.user_id = s.user_id GROUP BY s.task_id " +
+                     "UNION ALL SELECT a.task_id, SUM(a.minutes), SUM(a.session_count) FROM session_day_aggregates a " +
+                     "JOIN tasks ao ON ao.id = a.task_id AND ao.user_id = a.user_id GROUP BY a.task_id" +
+                     ") tiers GROUP BY task_id) m ON m.task_id = t.id " +
+                     "WHERE t.actual_minutes <> COALESCE(m.minutes, 0) OR t.session_count <> COALESCE(m.sessions, 0)");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        } finally {
+            COUNTER_DRIFT.record(start, ids.size());
+        }
+        return ids;
+    }
+
+    /**
+     * Recomputes one task's counters from its raw and compacted sessions and stores them.
+     * The task row stays locked from the read to the commit, which holds back
+     * session inserts for the task (they update the same row), so the sum
+     * includes every committed session and nothing is counted twice.
+     * Returns null when the task has gone or has no owner.
+     */
+    public CounterFix reconcileCounters(int taskId) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement lock = c.prepareStatement(
+                         "SELECT user_id, actual_minutes, session_count FROM tasks WHERE id = ? FOR UPDATE");
+                 PreparedStatement sum = c.prepareStatement(
+                         "SELECT COALESCE(SUM(minutes),0), COALESCE(SUM(sessions),0) FROM (" +
+                         "SELECT SUM(actual_minutes) AS minutes, COUNT(*) AS sessions FROM sessions WHERE task_id = ? AND user_id = ? " +
+                         "UNION ALL SELECT SUM(minutes), SUM(session_count) FROM session_day_aggregates " +
+                         "WHERE task_id = ? AND user_id = ?) tiers");
+                 PreparedStatement fix = c.prepareStatement(
+                         "UPDATE tasks SET actual_minutes = ?, session_count = ? WHERE id = ?")) {
+                lock.setInt(1, taskId);
+                int userId, storedMinutes, storedSessions;
+                try (ResultSet rs = lock.executeQuery()) {
+                    if (!rs.next() || rs.getObject(1) == null) {
+                        c.rollback();
+                        return null;
+                    }
+                    userId = rs.getInt(1);
+                    storedMinutes = rs.getInt(2);
+                    storedSessions = rs.getInt(3);
+                }
+                sum.setInt(1, taskId);
+                sum.setInt(2, userId);
+                sum.setInt(3, taskId);
+                sum.setInt(4, userId);
+                CounterFix result;
+                try (ResultSet rs = sum.executeQuery()) {
+                    rs.next();
+                    result = new CounterFix(taskId, userId, storedMinutes, storedSessions, rs.getInt(1), rs.getInt(2));
+                }
+                if (result.drifted()) {
+                    fix.setInt(1, result.minutes());
+                    fix.setInt(2, result.sessions());
+                    fix.setInt(3, taskId);
+                    rows = fix.executeUpdate();
+                }
+                c.commit();
+                return result;
+            } catch (Exception ex) {
+                c.rollback();
+                rows = 0;
+                throw ex;
+            }
+        } finally {
+            RECONCILE.record(start, rows);
+        }
+    }
+
+    /** Smallest and largest task id, or null when the table is empty. */
+    public int[] idBounds() throws Exception {
+        try (Connection c = DB.get();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(id), MAX(id) FROM tasks")) {
+            rs.next();
+            if (rs.getObject(1) == null) return null;
+            return new int[]{rs.getInt(1), rs.getInt(2)};
+        }
+    }
+
+    /**
+     * Recomputes the counters of every task with an id in [fromId, toId) from
+     * its owner's raw and compacted sessions, in one transaction. As in
+     * {@link #reconcileCounters}, the task rows are locked before the sums are
+     * read, so session inserts for those tasks wait for the commit and none is
+     * missed or counted twice. Returns the number of tasks whose counters changed.
+     */
+    public int recomputeCounters(int fromId, int toId) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement lock = c.prepareStatement(
+                         "SELECT id, actual_minutes, session_count FROM tasks WHERE id >= ? AND id < ? FOR UPDATE");
+                 PreparedStatement sum = c.prepareStatement(
+                         "SELECT task_id, SUM(minutes), SUM(sessions) FROM (" +
+                         "SELECT t.id AS task_id, SUM(s.actual_minutes) AS minutes, COUNT(*) AS sessions FROM tasks t " +
+                         "JOIN sessions s ON s.task_id = t.id AND s.user_id = t.user_id WHERE t.id >= ? AND t.id < ? GROUP BY t.id " +
+                         "UNION ALL SELECT t.id, SUM(a.minutes), SUM(a.session_count) FROM tasks t " +
+                         "JOIN session_day_aggregates a ON a.user_id = t.user_id AND a.task_id = t.id " +
+                         "WHERE t.id >= ? AND t.id < ? GROUP BY t.id) tiers GROUP BY task_id");
+                 PreparedStatement fix = c.prepareStatement(
+                         "UPDATE tasks SET actual_minutes = ?, session_count = ? WHERE id = ?")) {
+                Map<Integer, int[]> stored = new HashMap<>();
+                lock.setInt(1, fromId);
+                lock.setInt(2, toId);
+                try (ResultSet rs = lock.executeQuery()) {
+                    while (rs.next()) stored.put(rs.getInt(1), new int[]{rs.getInt(2), rs.getInt(3), 0, 0});
+                }
+                if (stored.isEmpty()) {
+                    c.rollback();
+                    return 0;
+                }
+                sum.setInt(1, fromId);
+                sum.setInt(2, toId);
+                sum.setInt(3, fromId);
+                sum.setInt(4, toId);
+                try (ResultSet rs = sum.executeQuery()) {
+                    while (rs.next()) {
+                        int[] counters = stored.get(rs.getInt(1));
+                        counters[2] = rs.getInt(2);
+                        counters[3] = rs.getInt(3);
+                    }
+                }
+                for (Map.Entry<Integer, int[]> e : stored.entrySet()) {
+                    int[] counters = e.getValue();
+                    if (counters[0] == counters[2] && counters[1] == counters[3]) continue;
+                    fix.setInt(1, counters[2]);
+                    fix.setInt(2, counters[3]);
+                    fix.setInt(3, e.getKey());
+                    fix.addBatch();
+                    rows++;
+                }
+                if (rows > 0) fix.executeBatch();
+                c.commit();
+                return rows;
+            } catch (Exception ex) {
+                c.rollback();
+                rows = 0;
+                throw ex;
             }
+        } finally {
+            RECOMPUTE_RANGE.record(start, rows);
         }
     }
 
-    private Task map(ResultSet rs) throws Exception {
+    Task map(ResultSet rs) throws Exception {
         Task t = new Task();
         t.id = rs.getInt("id");
         t.title = rs.getString("title");
@@ -119,6 +487,8 @@ public class TaskDAO {
         t.status = rs.getString("status");
         t.userId = rs.getInt("user_id");
         if (rs.wasNull()) t.userId = null;
+        t.actualMinutes = rs.getInt("actual_minutes");
+        t.sessionCount = rs.getInt("session_count");
         return t;
     }
 }
\ No newline at end of file
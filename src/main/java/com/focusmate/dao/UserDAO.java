@@ -1,38 +1,61 @@
 package com.focusmate.dao;
 
 import com.focusmate.db.DB;
+import com.focusmate.db.RowWriter;
+import com.focusmate.metrics.Metrics;
 import com.focusmate.model.User;
-import com.focusmate.util.PasswordUtil;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.function.Consumer;
 
 public class UserDAO {
+    private static final Metrics.Timer FIND_BY_EMAIL = Metrics.dao("UserDAO.findByEmail");
+    private static final Metrics.Timer FIND_BY_ID = Metrics.dao("UserDAO.findById");
+    private static final Metrics.Timer INSERT = Metrics.dao("UserDAO.insert");
+    private static final Metrics.Timer UPDATE_PASSWORD_HASH = Metrics.dao("UserDAO.updatePasswordHash");
+    private static final Metrics.Timer FOR_EACH_EMAIL = Metrics.dao("UserDAO.forEachEmail");
 
     public User findByEmail(String email) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement("SELECT * FROM users WHERE email = ?")) {
             ps.setString(1, email.trim().toLowerCase());
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return map(rs);
+                if (rs.next()) {
+                    rows = 1;
+                    return map(rs);
+                }
             }
+        } finally {
+            FIND_BY_EMAIL.record(start, rows);
         }
         return null;
     }
 
     public User findById(int id) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement("SELECT * FROM users WHERE id = ?")) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return map(rs);
+                if (rs.next()) {
+                    rows = 1;
+                    return map(rs);
+                }
             }
+        } finally {
+            FIND_BY_ID.record(start, rows);
         }
         return null;
     }
 
     public User insert(User user) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
         try (Connection c = DB.get();
              PreparedStatement ps = c.prepareStatement(
                      "INSERT INTO users(email, name, password_hash) VALUES (?,?,?)",
@@ -40,22 +63,48 @@ public class UserDAO {
             ps.setString(1, user.email.trim().toLowerCase());
             ps.setString(2, user.name.trim());
             ps.setString(3, user.passwordHash);
-            ps.executeUpdate();
+            rows = ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) user.id = rs.getInt(1);
             }
+        } finally {
+            INSERT.record(start, rows);
         }
         return user;
     }
 
-    public User authenticate(String email, String password) throws Exception {
-        User user = findByEmail(email);
-        if (user == null) return null;
-        String hashed = PasswordUtil.hash(password);
-        if (user.passwordHash != null && user.passwordHash.equals(hashed)) {
-            return user;
+    /** Replaces the hash only if it is still {@code expected}, so a concurrent change is not overwritten. */
+    public boolean updatePasswordHash(int id, String expected, String passwordHash) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        try (Connection c = DB.get();
+             PreparedStatement ps = c.prepareStatement(
+                     "UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?")) {
+            ps.setString(1, passwordHash);
+            ps.setInt(2, id);
+            ps.setString(3, expected);
+            rows = ps.executeUpdate();
+        } finally {
+            UPDATE_PASSWORD_HASH.record(start, rows);
         }
-        return null;
+        return rows == 1;
+    }
+
+    /** Streams every stored email (already lower-cased on insert); returns the count. */
+    public long forEachEmail(Consumer<String> action) throws Exception {
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Connection c = DB.get();
+             PreparedStatement ps = RowWriter.streaming(c, "SELECT email FROM users");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                action.accept(rs.getString(1));
+                rows++;
+            }
+        } finally {
+            FOR_EACH_EMAIL.record(start, rows);
+        }
+        return rows;
     }
 
     private User map(ResultSet rs) throws Exception {
@@ -0,0 +1,340 @@
+package com.focusmate.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool behind {@link DB#get()}. Closing a borrowed
+ * connection hands it back to the pool instead of closing the socket.
+ */
+public class ConnectionPool {
+    public static final String TIMEOUT_SQL_STATE = "HYT00";
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int minIdle;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+    private final boolean leakTrace;
+    private final long validationWindowNanos;
+    private final int validationTimeoutSec;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+    private volatile Runnable brokenConnectionListener;
+
+    public ConnectionPool(String url, String user, String pass, Settings settings) {
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.maxSize = Math.max(1, settings.maxSize);
+        this.minIdle = Math.max(0, Math.min(settings.minIdle, this.maxSize));
+        this.borrowTimeoutMs = settings.borrowTimeoutMs;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMs);
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(settings.leakThresholdMs);
+        this.leakTrace = settings.leakTrace;
+        this.validationWindowNanos = TimeUnit.MILLISECONDS.toNanos(settings.validationWindowMs);
+        this.validationTimeoutSec = Math.max(1, settings.validationTimeoutSec);
+        this.permits = new Semaphore(this.maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "focusmate-db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, settings.housekeepingMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (shutdown) throw new SQLException("Connection pool is shut down");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMs
+                        + "ms waiting for a database connection (active=" + borrowed.size() + ", max=" + maxSize + ")",
+                        TIMEOUT_SQL_STATE);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", ex);
+        }
+        try {
+            PooledConnection entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry)) break;
+                validationFailures.increment();
+                destroy(entry);
+            }
+            if (entry == null) entry = open();
+            entry.borrowedAt = System.nanoTime();
+            entry.borrowThread = Thread.currentThread().getName();
+            entry.borrowSite = leakTrace ? new Throwable("Connection borrowed here") : null;
+            entry.leakReported = false;
+            borrowed.add(entry);
+            recordWait(entry.borrowedAt - start);
+            return entry.newHandle();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /** Called whenever a connection comes back unusable, e.g. after a communication failure mid-query. */
+    public void onBrokenConnection(Runnable listener) {
+        this.brokenConnectionListener = listener;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection entry;
+        while ((entry = idle.pollFirst()) != null) destroy(entry);
+    }
+
+    public Stats stats() {
+        long count = borrows.sum();
+        return new Stats(borrowed.size(), idle.size(), total.get(), minIdle, maxSize, permits.getQueueLength(),
+                count, timeouts.sum(), created.sum(), destroyed.sum(), validationFailures.sum(), leaks.sum(),
+                count == 0 ? 0.0 : borrowWaitNanos.sum() / (double) count / 1_000_000.0,
+                maxBorrowWaitNanos.get() / 1_000_000.0);
+    }
+
+    private PooledConnection open() throws SQLException {
+        total.incrementAndGet();
+        try {
+            Connection raw = DriverManager.getConnection(url, user, pass);
+            created.increment();
+            return new PooledConnection(raw);
+        } catch (SQLException | RuntimeException ex) {
+            total.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    private boolean isUsable(PooledConnection entry) {
+        try {
+            if (entry.broken || entry.raw.isClosed()) return false;
+            if (System.nanoTime() - entry.lastUsed < validationWindowNanos) return true;
+            return entry.raw.isValid(validationTimeoutSec);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection entry) {
+        borrowed.remove(entry);
+        try {
+            if (!entry.broken && entry.raw.isClosed()) entry.broken = true;
+            if (!entry.broken && !entry.raw.getAutoCommit()) {
+                entry.raw.rollback();
+                entry.raw.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            entry.broken = true;
+        }
+        if (entry.broken && !shutdown) {
+            Runnable listener = brokenConnectionListener;
+            if (listener != null) listener.run();
+        }
+        if (entry.broken || shutdown || total.get() > maxSize) {
+            destroy(entry);
+        } else {
+            entry.lastUsed = System.nanoTime();
+            idle.offerFirst(entry);
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledConnection entry) {
+        total.decrementAndGet();
+        destroyed.increment();
+        try {
+            entry.raw.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrows.increment();
+        borrowWaitNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxBorrowWaitNanos.get())) {
+            if (maxBorrowWaitNanos.compareAndSet(max, nanos)) break;
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && total.get() > minIdle) {
+                PooledConnection entry = oldestFirst.next();
+                if (now - entry.lastUsed > idleTimeoutNanos && idle.remove(entry)) destroy(entry);
+            }
+
+            if (leakThresholdNanos > 0) {
+                for (PooledConnection entry : borrowed) {
+                    long held = now - entry.borrowedAt;
+                    if (!entry.leakReported && held > leakThresholdNanos) {
+                        entry.leakReported = true;
+                        leaks.increment();
+                        System.err.println("⚠️ Possible connection leak: held by thread " + entry.borrowThread
+                                + " for " + TimeUnit.NANOSECONDS.toMillis(held) + "ms");
+                        if (entry.borrowSite != null) entry.borrowSite.printStackTrace();
+                    }
+                }
+            }
+
+            while (!shutdown && total.get() < minIdle) {
+                idle.offerLast(open());
+            }
+        } catch (SQLException ex) {
+            // Database unreachable; the next cycle tries again.
+        } catch (RuntimeException ex) {
+            System.err.println("⚠️ Connection pool housekeeping failed: " + ex.getMessage());
+        }
+    }
+
+    private static boolean isFatal(Throwable t) {
+        if (!(t instanceof SQLException sql)) return false;
+        String state = sql.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    private final class PooledConnection {
+        final Connection raw;
+        volatile long lastUsed = System.nanoTime();
+        volatile long borrowedAt;
+        volatile String borrowThread;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        volatile boolean broken;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Handle(PooledConnection entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) release(entry);
+                    return null;
+                case "isClosed":
+                    if (closed.get()) return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + entry.raw + "]";
+                default:
+                    break;
+            }
+            if (closed.get()) throw new SQLException("Connection has already been returned to the pool");
+            try {
+                return method.invoke(entry.raw, args);
+            } catch (InvocationTargetException ex) {
+                Throwable cause = ex.getCause();
+                if (isFatal(cause)) entry.broken = true;
+                throw cause;
+            }
+        }
+    }
+
+    public static class Settings {
+        public int minIdle = 2;
+        public int maxSize = 10;
+        public long borrowTimeoutMs = 5_000;
+        public long idleTimeoutMs = 600_000;
+        public long leakThresholdMs = 60_000;
+        public boolean leakTrace = false;
+        public long validationWindowMs = 500;
+        public int validationTimeoutSec = 2;
+        public long housekeepingMs = 30_000;
+    }
+
+    public static class Stats {
+        public final int active;
+        public final int idle;
+        public final int total;
+        public final int minIdle;
+        public final int maxSize;
+        public final int waiting;
+        public final long borrows;
+        public final long borrowTimeouts;
+        public final long created;
+        public final long destroyed;
+        public final long validationFailures;
+        public final long leaks;
+        public final double avgBorrowWaitMs;
+        public final double maxBorrowWaitMs;
+
+        Stats(int active, int idle, int total, int minIdle, int maxSize, int waiting, long borrows,
+              long borrowTimeouts, long created, long destroyed, long validationFailures, long leaks,
+              double avgBorrowWaitMs, double maxBorrowWaitMs) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.minIdle = minIdle;
+            this.maxSize = maxSize;
+            this.waiting = waiting;
+            this.borrows = borrows;
+            this.borrowTimeouts = borrowTimeouts;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.leaks = leaks;
+            this.avgBorrowWaitMs = avgBorrowWaitMs;
+            this.maxBorrowWaitMs = maxBorrowWaitMs;
+        }
+    }
+}
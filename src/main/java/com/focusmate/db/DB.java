@@ -1,14 +1,62 @@
 package com.focusmate.db;
 
+import com.focusmate.util.Config;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DB {
     private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/focusmate?useSSL=false&serverTimezone=UTC";
     private static final String DEFAULT_USER = "root";
     private static final String DEFAULT_PASS = "MARS*1979";
 
+    private static final List<Runnable> SHUTDOWN_TASKS = new CopyOnWriteArrayList<>();
+    private static volatile boolean poolStarted;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DB::shutdown, "focusmate-db-shutdown"));
+    }
+
     public static Connection get() throws Exception {
+        DbHealth health = DbHealth.SHARED;
+        if (!health.allowRequest()) {
+            throw new SQLTransientConnectionException("Database unavailable (circuit " + health.state() + ")", "08000");
+        }
+        try {
+            Connection c = pool().borrow();
+            health.recordSuccess();
+            return c;
+        } catch (SQLException ex) {
+            // A saturated pool says nothing about MySQL itself.
+            if (!ConnectionPool.TIMEOUT_SQL_STATE.equals(ex.getSQLState())) health.recordFailure(ex.getMessage());
+            throw ex;
+        }
+    }
+
+    public static ConnectionPool pool() {
+        return Holder.POOL;
+    }
+
+    /** Registers work that still needs the database at JVM shutdown; it runs before the pool closes. */
+    public static void onShutdown(Runnable task) {
+        SHUTDOWN_TASKS.add(task);
+    }
+
+    private static void shutdown() {
+        for (Runnable task : SHUTDOWN_TASKS) {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                System.err.println("⚠️ Shutdown task failed: " + ex.getMessage());
+            }
+        }
+        if (poolStarted) pool().shutdown();
+    }
+
+    private static ConnectionPool createPool() {
         String envUrl = System.getenv("SPRING_DATASOURCE_URL");
         String envUser = System.getenv("SPRING_DATASOURCE_USERNAME");
         String envPass = System.getenv("SPRING_DATASOURCE_PASSWORD");
@@ -16,7 +64,30 @@ public class DB {
         String url = (envUrl != null && !envUrl.isBlank()) ? envUrl : DEFAULT_URL;
         String user = (envUser != null && !envUser.isBlank()) ? envUser : DEFAULT_USER;
         String pass = (envPass != null) ? envPass : DEFAULT_PASS;
+        // Lets the driver collapse JDBC batches into multi-row INSERTs.
+        if (!url.contains("rewriteBatchedStatements")) {
+            url += (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+        }
+
+        ConnectionPool.Settings settings = new ConnectionPool.Settings();
+        settings.minIdle = Config.getInt("FOCUSMATE_DB_POOL_MIN_IDLE", settings.minIdle);
+        settings.maxSize = Config.getInt("FOCUSMATE_DB_POOL_MAX_SIZE", settings.maxSize);
+        settings.borrowTimeoutMs = Config.getLong("FOCUSMATE_DB_POOL_BORROW_TIMEOUT_MS", settings.borrowTimeoutMs);
+        settings.idleTimeoutMs = Config.getLong("FOCUSMATE_DB_POOL_IDLE_TIMEOUT_MS", settings.idleTimeoutMs);
+        settings.leakThresholdMs = Config.getLong("FOCUSMATE_DB_POOL_LEAK_THRESHOLD_MS", settings.leakThresholdMs);
+        settings.leakTrace = Config.getBoolean("FOCUSMATE_DB_POOL_LEAK_TRACE", settings.leakTrace);
+        settings.validationWindowMs = Config.getLong("FOCUSMATE_DB_POOL_VALIDATION_WINDOW_MS", settings.validationWindowMs);
+        settings.housekeepingMs = Config.getLong("FOCUSMATE_DB_POOL_HOUSEKEEPING_MS", settings.housekeepingMs);
+        ConnectionPool pool = new ConnectionPool(url, user, pass, settings);
+        pool.onBrokenConnection(() -> DbHealth.SHARED.recordFailure("Connection broken during a query"));
+        return pool;
+    }
+
+    private static class Holder {
+        static final ConnectionPool POOL = createPool();
 
-        return DriverManager.getConnection(url, user, pass);
+        static {
+            poolStarted = true;
+        }
     }
-}
\ No newline at end of file
+}
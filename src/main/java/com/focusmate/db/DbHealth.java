@@ -0,0 +1,138 @@
+package com.focusmate.db;
+
+import com.focusmate.util.Config;
+
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Circuit breaker around MySQL availability. A background probe and the
+ * outcome of real connection borrows drive the state; callers only do a
+ * volatile read to decide between MySQL and the MemoryStore fallback.
+ */
+public class DbHealth {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public static final DbHealth SHARED = new DbHealth(
+            Config.getInt("FOCUSMATE_DB_HEALTH_FAILURE_THRESHOLD", 3),
+            Config.getLong("FOCUSMATE_DB_HEALTH_OPEN_COOLDOWN_MS", 5_000),
+            Config.getLong("FOCUSMATE_DB_HEALTH_PROBE_INTERVAL_MS", 5_000));
+
+    private final int failureThreshold;
+    private final long openCooldownNanos;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLongArray transitionsInto = new AtomicLongArray(State.values().length);
+    private final long[] nanosInState = new long[State.values().length];
+    private volatile State state = State.CLOSED;
+    private volatile long stateSince = System.nanoTime();
+    private volatile long lastFailureAt;
+    private volatile String lastFailure;
+
+    public DbHealth(int failureThreshold, long openCooldownMs, long probeIntervalMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openCooldownNanos = TimeUnit.MILLISECONDS.toNanos(openCooldownMs);
+        ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "focusmate-db-health-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        prober.scheduleWithFixedDelay(this::probe, 0, probeIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isAvailable() {
+        return state == State.CLOSED;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /** Lets the caller through when closed, or as the single trial once an open circuit has cooled down. */
+    public boolean allowRequest() {
+        State s = state;
+        if (s == State.CLOSED) return true;
+        return s == State.OPEN && System.nanoTime() - stateSince >= openCooldownNanos
+                && transition(State.OPEN, State.HALF_OPEN);
+    }
+
+    public void recordSuccess() {
+        if (consecutiveFailures.get() != 0) consecutiveFailures.set(0);
+        State s = state;
+        if (s != State.CLOSED) transition(s, State.CLOSED);
+    }
+
+    public void recordFailure(String reason) {
+        lastFailure = reason;
+        lastFailureAt = System.currentTimeMillis();
+        int failures = consecutiveFailures.incrementAndGet();
+        State s = state;
+        if (s == State.HALF_OPEN || (s == State.CLOSED && failures >= failureThreshold)) {
+            transition(s, State.OPEN);
+        }
+    }
+
+    private void probe() {
+        State s = state;
+        if (s == State.OPEN) {
+            if (System.nanoTime() - stateSince < openCooldownNanos || !transition(State.OPEN, State.HALF_OPEN)) return;
+        }
+        try (Connection c = DB.pool().borrow()) {
+            if (c.isValid(2)) {
+                recordSuccess();
+            } else {
+                probeFailed("Connection validation failed");
+            }
+        } catch (Exception e) {
+            probeFailed(e.getMessage());
+        }
+    }
+
+    private void probeFailed(String reason) {
+        // A failed probe is conclusive, no need to wait for the request threshold.
+        recordFailure(reason);
+        State s = state;
+        if (s != State.OPEN) transition(s, State.OPEN);
+    }
+
+    private boolean transition(State from, State to) {
+        synchronized (this) {
+            if (state != from || from == to) return false;
+            long now = System.nanoTime();
+            nanosInState[from.ordinal()] += now - stateSince;
+            stateSince = now;
+            state = to;
+            transitionsInto.incrementAndGet(to.ordinal());
+        }
+        if (to == State.OPEN) {
+            System.err.println("⚠️ Database marked unavailable (" + lastFailure + "); using in-memory fallback.");
+        } else if (to == State.CLOSED) {
+            System.out.println("✅ Database available again.");
+        }
+        return true;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long now = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("state", state.name());
+        result.put("consecutiveFailures", consecutiveFailures.get());
+        result.put("lastFailure", lastFailure);
+        result.put("lastFailureAt", lastFailureAt);
+        Map<String, Object> transitions = new LinkedHashMap<>();
+        Map<String, Object> secondsIn = new LinkedHashMap<>();
+        for (State s : State.values()) {
+            long nanos = nanosInState[s.ordinal()] + (s == state ? now - stateSince : 0);
+            transitions.put(s.name(), transitionsInto.get(s.ordinal()));
+            secondsIn.put(s.name(), nanos / 1e9);
+        }
+        result.put("transitionsInto", transitions);
+        result.put("secondsInState", secondsIn);
+        return result;
+    }
+}
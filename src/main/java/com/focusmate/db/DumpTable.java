@@ -1,10 +1,29 @@
 package com.focusmate.db;
 
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Prints the first 100 rows of a table, or with a format argument streams the
+ * whole table as NDJSON/CSV to stdout or a file (gzipped if it ends in .gz):
+ * {@code DumpTable sessions csv sessions.csv.gz}
+ */
 public class DumpTable {
     public static void main(String[] args) throws Exception {
         String table = args.length > 0 ? args[0] : "users";
+        if (!table.matches("[A-Za-z0-9_]+")) throw new IllegalArgumentException("Invalid table name: " + table);
+        if (args.length > 1) {
+            RowWriter.Format format = RowWriter.Format.parse(args[1]);
+            if (format == null) throw new IllegalArgumentException("Unknown format: " + args[1] + " (use ndjson or csv)");
+            export(table, format, args.length > 2 ? Path.of(args[2]) : null);
+            return;
+        }
         try (Connection conn = DB.get();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery("SELECT * FROM " + table + " LIMIT 100")) {
@@ -22,4 +41,20 @@ public class DumpTable {
             }
         }
     }
+
+    private static void export(String table, RowWriter.Format format, Path file) throws Exception {
+        OutputStream out = file != null ? Files.newOutputStream(file) : System.out;
+        if (file != null && file.toString().endsWith(".gz")) out = new GZIPOutputStream(out, 8 * 1024);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8 * 1024);
+        long rows;
+        try (Connection conn = DB.get();
+             PreparedStatement ps = RowWriter.streaming(conn, "SELECT * FROM " + table);
+             ResultSet rs = ps.executeQuery()) {
+            rows = RowWriter.of(format, writer).copy(rs);
+        } finally {
+            writer.flush();
+            if (file != null) writer.close();
+        }
+        System.err.println("✅ Exported " + rows + " rows from " + table + (file != null ? " to " + file : ""));
+    }
 }
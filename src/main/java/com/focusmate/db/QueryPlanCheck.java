@@ -0,0 +1,117 @@
+package com.focusmate.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EXPLAINs the hot per-user queries and reports whether MySQL uses the index
+ * each one was given by the migrations, and whether it still has to sort.
+ * QueryPlanCheckTest fails the build when a check is not ok against a freshly
+ * migrated test database; /api/health/schema reports the same checks on a
+ * live one, as does startup when FOCUSMATE_STARTUP_PLAN_CHECK=true.
+ */
+public class QueryPlanCheck {
+    /** {@code table} is the table or alias in {@code sql} whose access path is checked. */
+    public record Check(String query, String sql, String table, String index) {
+    }
+
+    // Same shape as the DAO statements. The ids match no rows, so the plan shows whether the index is
+    // usable at all rather than how selective one heavy user happens to be. The counter drift sweep
+    // reads every session and compacted day by design; what matters there is that each row finds its
+    // task by primary key rather than by a scan per row.
+    private static final String COUNTER_DRIFT =
+            "SELECT t.id FROM tasks t LEFT JOIN (" +
+            "SELECT task_id, SUM(minutes) AS minutes, SUM(sessions) AS sessions FROM (" +
+            "SELECT s.task_id, SUM(s.actual_minutes) AS minutes, COUNT(*) AS sessions FROM sessions s " +
+            "JOIN tasks o ON o.id = s.task_id AND o.user_id = s.user_id GROUP BY s.task_id " +
+            "UNION ALL SELECT a.task_id, SUM(a.minutes), SUM(a.session_count) FROM session_day_aggregates a " +
+            "JOIN tasks ao ON ao.id = a.task_id AND ao.user_id = a.user_id GROUP BY a.task_id" +
+            ") tiers GROUP BY task_id) m ON m.task_id = t.id " +
+            "WHERE t.actual_minutes <> COALESCE(m.minutes, 0) OR t.session_count <> COALESCE(m.sessions, 0)";
+    private static final String RECONCILE_COUNTERS =
+            "SELECT COALESCE(SUM(minutes),0), COALESCE(SUM(sessions),0) FROM (" +
+            "SELECT SUM(actual_minutes) AS minutes, COUNT(*) AS sessions FROM sessions WHERE task_id = -1 AND user_id = -1 " +
+            "UNION ALL SELECT SUM(minutes), SUM(session_count) FROM session_day_aggregates " +
+            "WHERE task_id = -1 AND user_id = -1) tiers";
+
+    private static final String RECOMPUTE_COUNTERS =
+            "SELECT task_id, SUM(minutes), SUM(sessions) FROM (" +
+            "SELECT t.id AS task_id, SUM(s.actual_minutes) AS minutes, COUNT(*) AS sessions FROM tasks t " +
+            "JOIN sessions s ON s.task_id = t.id AND s.user_id = t.user_id WHERE t.id >= -2 AND t.id < -1 GROUP BY t.id " +
+            "UNION ALL SELECT t.id, SUM(a.minutes), SUM(a.session_count) FROM tasks t " +
+            "JOIN session_day_aggregates a ON a.user_id = t.user_id AND a.task_id = t.id " +
+            "WHERE t.id >= -2 AND t.id < -1 GROUP BY t.id) tiers GROUP BY task_id";
+
+    public static final List<Check> CHECKS = List.of(
+            new Check("TaskDAO.listAll",
+                    "SELECT * FROM tasks WHERE user_id = -1 ORDER BY created_at DESC",
+                    "tasks", "idx_tasks_user_created"),
+            new Check("TaskDAO.listPage",
+                    "SELECT * FROM tasks WHERE user_id = -1 AND (created_at < '2030-01-01 00:00:00' " +
+                    "OR (created_at = '2030-01-01 00:00:00' AND id < 1000)) ORDER BY created_at DESC, id DESC LIMIT 51",
+                    "tasks", "idx_tasks_user_created"),
+            new Check("SessionDAO.listAll",
+                    "SELECT * FROM sessions WHERE user_id = -1 ORDER BY start_time DESC",
+                    "sessions", "idx_sessions_user_start"),
+            new Check("SessionDAO.listPage",
+                    "SELECT * FROM sessions WHERE user_id = -1 AND (start_time < '2030-01-01 00:00:00' " +
+                    "OR (start_time = '2030-01-01 00:00:00' AND id < 1000)) ORDER BY start_time DESC, id DESC LIMIT 51",
+                    "sessions", "idx_sessions_user_start"),
+            new Check("TaskDAO.reconcileCounters", RECONCILE_COUNTERS, "sessions", "idx_sessions_task_user"),
+            new Check("TaskDAO.reconcileCounters (compacted)", RECONCILE_COUNTERS, "session_day_aggregates", "PRIMARY"),
+            new Check("TaskDAO.recomputeCounters", RECOMPUTE_COUNTERS, "s", "idx_sessions_task_user"),
+            new Check("TaskDAO.recomputeCounters (compacted)", RECOMPUTE_COUNTERS, "a", "PRIMARY"),
+            new Check("TaskDAO.listCounterDrift", COUNTER_DRIFT, "o", "PRIMARY"),
+            new Check("TaskDAO.listCounterDrift (compacted)", COUNTER_DRIFT, "ao", "PRIMARY"));
+
+    /**
+     * One entry per check with the chosen key, access type, estimated rows and
+     * possible keys. A check is ok when the expected index is used without a
+     * filesort. With an estimate of at most one row (an empty table, or ids
+     * that tie between equally cheap indexes) any plan is as good as another,
+     * so it is enough that the index is a candidate.
+     */
+    public static List<Map<String, Object>> run() throws Exception {
+        try (Connection c = DB.get()) {
+            return run(c);
+        }
+    }
+
+    public static List<Map<String, Object>> run(Connection c) throws Exception {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Check check : CHECKS) results.add(check(c, check));
+        return results;
+    }
+
+    public static Map<String, Object> check(Connection c, Check check) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("query", check.query());
+        result.put("expectedIndex", check.index());
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("EXPLAIN " + check.sql())) {
+            while (rs.next()) {
+                if (!check.table().equals(rs.getString("table"))) continue;
+                String key = rs.getString("key");
+                String possible = rs.getString("possible_keys");
+                String extra = rs.getString("Extra");
+                long rows = rs.getLong("rows");
+                boolean filesort = extra != null && extra.contains("filesort");
+                boolean candidate = possible != null && List.of(possible.split(",")).contains(check.index());
+                result.put("key", key);
+                result.put("type", rs.getString("type"));
+                result.put("rows", rows);
+                result.put("possibleKeys", possible);
+                result.put("filesort", filesort);
+                result.put("ok", (check.index().equals(key) && !filesort) || (candidate && rows <= 1));
+                break;
+            }
+        }
+        result.putIfAbsent("rows", 0L);
+        result.putIfAbsent("ok", false);
+        return result;
+    }
+}
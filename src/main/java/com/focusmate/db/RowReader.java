@@ -0,0 +1,191 @@
+package com.focusmate.db;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads rows one at a time from a JSON array, NDJSON or CSV (header line
+ * first) stream, the counterpart of {@link RowWriter}. A row that cannot be
+ * parsed on its own is returned with an error so the caller can skip it; a
+ * stream that is broken beyond that point throws IOException.
+ */
+public abstract class RowReader implements Closeable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public enum Format {
+        JSON, NDJSON, CSV;
+
+        /** Matches a format name or a Content-Type; returns null when neither is recognised. */
+        public static Format parse(String name) {
+            if (name == null) return null;
+            String n = name.toLowerCase();
+            if (n.contains("ndjson") || n.contains("jsonl")) return NDJSON;
+            if (n.contains("json")) return JSON;
+            if (n.contains("csv")) return CSV;
+            return null;
+        }
+    }
+
+    /** One input row: {@code values} by column name, or {@code error} if it could not be parsed. */
+    public record Row(long number, Map<String, Object> values, String error) {
+    }
+
+    protected long rowNumber;
+
+    public static RowReader of(Format format, InputStream in) throws IOException {
+        return switch (format) {
+            case JSON -> new JsonArray(in);
+            case NDJSON -> new Ndjson(in);
+            case CSV -> new Csv(in);
+        };
+    }
+
+    /** The next row, or null at the end of the input. */
+    public abstract Row next() throws IOException;
+
+    private static final class JsonArray extends RowReader {
+        private final JsonParser parser;
+
+        JsonArray(InputStream in) throws IOException {
+            parser = MAPPER.getFactory().createParser(in);
+            if (parser.nextToken() != JsonToken.START_ARRAY) throw new IOException("Expected a JSON array of objects");
+        }
+
+        @Override
+        public Row next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY || token == null) return null;
+            rowNumber++;
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return new Row(rowNumber, null, "Expected an object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> values = MAPPER.readValue(parser, Map.class);
+            return new Row(rowNumber, values, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    private static final class Ndjson extends RowReader {
+        private final BufferedReader reader;
+
+        Ndjson(InputStream in) {
+            reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) return null;
+            } while (line.isBlank());
+            rowNumber++;
+            try {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> values = MAPPER.readValue(line, Map.class);
+                return new Row(rowNumber, values, null);
+            } catch (JsonProcessingException e) {
+                return new Row(rowNumber, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class Csv extends RowReader {
+        private final BufferedReader reader;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private String[] header;
+
+        Csv(InputStream in) {
+            reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (header == null) {
+                if (!readRecord()) return null;
+                header = fields.stream().map(String::trim).toArray(String[]::new);
+            }
+            do {
+                if (!readRecord()) return null;
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+            rowNumber++;
+            if (fields.size() != header.length) {
+                return new Row(rowNumber, null, "Expected " + header.length + " fields but found " + fields.size());
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < header.length; i++) {
+                String value = fields.get(i);
+                values.put(header[i], value.isEmpty() ? null : value);
+            }
+            return new Row(rowNumber, values, null);
+        }
+
+        /** Reads one RFC 4180 record into {@code fields}; quoted fields may span lines. */
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            int ch = reader.read();
+            if (ch == -1) return false;
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (ch == -1) throw new IOException("Unterminated quoted field in CSV row " + (rowNumber + 1));
+                    if (ch == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) ch);
+                    }
+                } else if (ch == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (ch == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (ch == '\n' || ch == -1) {
+                    break;
+                } else if (ch != '\r') {
+                    field.append((char) ch);
+                }
+                ch = reader.read();
+            }
+            fields.add(field.toString());
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
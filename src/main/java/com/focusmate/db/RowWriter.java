@@ -0,0 +1,174 @@
+package com.focusmate.db;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.*;
+
+/**
+ * Writes rows one at a time as NDJSON (one JSON object per line) or CSV with a
+ * header line, so exports never hold more than the current row in memory.
+ * Timestamps and dates are written in ISO-8601 local form, like the API's JSON.
+ */
+public abstract class RowWriter {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /** Returns null for an unknown name. */
+        public static Format parse(String name) {
+            for (Format f : values()) {
+                if (f.name().equalsIgnoreCase(name) || f.extension.equalsIgnoreCase(name)) return f;
+            }
+            return null;
+        }
+    }
+
+    protected final Writer out;
+    protected String[] columns;
+
+    protected RowWriter(Writer out) {
+        this.out = out;
+    }
+
+    public static RowWriter of(Format format, Writer out) {
+        return format == Format.CSV ? new Csv(out) : new Ndjson(out);
+    }
+
+    /**
+     * A forward-only, read-only statement in Connector/J's streaming mode: rows
+     * are read off the socket as the caller advances instead of being buffered
+     * client-side. The connection cannot run other statements until the result
+     * set is closed.
+     */
+    public static PreparedStatement streaming(Connection c, String sql) throws SQLException {
+        PreparedStatement ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(Integer.MIN_VALUE);
+        return ps;
+    }
+
+    public void header(String... columns) throws IOException {
+        this.columns = columns;
+    }
+
+    public abstract void row(Object... values) throws IOException;
+
+    /** Writes the header and every remaining row of the result set; returns the row count. */
+    public long copy(ResultSet rs) throws SQLException, IOException {
+        ResultSetMetaData md = rs.getMetaData();
+        String[] names = new String[md.getColumnCount()];
+        for (int i = 0; i < names.length; i++) names[i] = md.getColumnLabel(i + 1);
+        header(names);
+        Object[] values = new Object[names.length];
+        long rows = 0;
+        while (rs.next()) {
+            for (int i = 0; i < values.length; i++) values[i] = rs.getObject(i + 1);
+            row(values);
+            rows++;
+        }
+        return rows;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /** Numbers and booleans stay unquoted; everything else is written as text. */
+    protected static boolean isBare(Object value) {
+        return value instanceof Number || value instanceof Boolean;
+    }
+
+    protected static String text(Object value) {
+        if (value instanceof Timestamp ts) return ts.toLocalDateTime().toString();
+        if (value instanceof Date d) return d.toLocalDate().toString();
+        return value.toString();
+    }
+
+    private static final class Ndjson extends RowWriter {
+        Ndjson(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            out.write('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                string(columns[i]);
+                out.write(':');
+                Object value = values[i];
+                if (value == null) out.write("null");
+                else if (isBare(value)) out.write(value.toString());
+                else string(text(value));
+            }
+            out.write("}\n");
+        }
+
+        private void string(String s) throws IOException {
+            out.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                char ch = s.charAt(i);
+                switch (ch) {
+                    case '"' -> out.write("\\\"");
+                    case '\\' -> out.write("\\\\");
+                    case '\n' -> out.write("\\n");
+                    case '\r' -> out.write("\\r");
+                    case '\t' -> out.write("\\t");
+                    default -> {
+                        if (ch < 0x20) out.write(String.format("\\u%04x", (int) ch));
+                        else out.write(ch);
+                    }
+                }
+            }
+            out.write('"');
+        }
+    }
+
+    private static final class Csv extends RowWriter {
+        Csv(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void header(String... columns) throws IOException {
+            super.header(columns);
+            line(columns);
+        }
+
+        @Override
+        public void row(Object... values) throws IOException {
+            line(values);
+        }
+
+        private void line(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                if (values[i] != null) field(isBare(values[i]) ? values[i].toString() : text(values[i]));
+            }
+            out.write("\r\n");
+        }
+
+        private void field(String s) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char ch = s.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!quote) {
+                out.write(s);
+                return;
+            }
+            out.write('"');
+            out.write(s.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+}
@@ -1,71 +1,64 @@
 package com.focusmate.db;
 
+import com.focusmate.util.Config;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.sql.Connection;
-import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Migrates the schema on startup (see {@link SchemaMigrator}). With
+ * FOCUSMATE_STARTUP_PLAN_CHECK=true it also logs any hot query whose plan
+ * check fails; QueryPlanCheckTest is what enforces them.
+ */
 @Component
+@Order(1)
 public class SchemaInitializer implements ApplicationRunner {
+    private static volatile SchemaMigrator.Result lastResult;
+    private static volatile List<Map<String, Object>> startupPlans;
 
-    @Override
-    public void run(ApplicationArguments args) {
-        try (Connection c = DB.get(); Statement st = c.createStatement()) {
-            st.executeUpdate(
-                "CREATE TABLE IF NOT EXISTS users (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "email VARCHAR(255) NOT NULL UNIQUE, " +
-                    "name VARCHAR(255) NOT NULL, " +
-                    "password_hash VARCHAR(255) NOT NULL, " +
-                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
-            );
-
-            st.executeUpdate(
-                "CREATE TABLE IF NOT EXISTS tasks (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "title VARCHAR(255) NOT NULL, " +
-                    "priority INT NOT NULL DEFAULT 0, " +
-                    "due_date DATE NULL, " +
-                    "target_minutes INT NOT NULL DEFAULT 0, " +
-                    "status VARCHAR(32) NOT NULL DEFAULT 'PENDING', " +
-                    "user_id INT NULL, " +
-                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                    "CONSTRAINT fk_tasks_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE SET NULL" +
-                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
-            );
-
-            st.executeUpdate(
-                "CREATE TABLE IF NOT EXISTS sessions (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "task_id INT NULL, " +
-                    "user_id INT NULL, " +
-                    "start_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
-                    "end_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
-                    "planned_minutes INT NOT NULL, " +
-                    "actual_minutes INT NOT NULL, " +
-                    "stopped_manually TINYINT(1) NOT NULL DEFAULT 0, " +
-                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                    "CONSTRAINT fk_sessions_task FOREIGN KEY (task_id) REFERENCES tasks(id) ON DELETE SET NULL" +
-                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
-            );
+    /** True when this start applied the given version, e.g. so a data backfill can follow it. */
+    public static boolean appliedOnStartup(int version) {
+        SchemaMigrator.Result result = lastResult;
+        return result != null && result.applied.stream().anyMatch(m -> m.version == version);
+    }
 
-            st.executeUpdate(
-                "CREATE TABLE IF NOT EXISTS presets (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "name VARCHAR(100) NOT NULL, " +
-                    "focus_min INT NOT NULL DEFAULT 25, " +
-                    "short_break_min INT NOT NULL DEFAULT 5, " +
-                    "long_break_min INT NOT NULL DEFAULT 15, " +
-                    "cycles_before_long INT NOT NULL DEFAULT 4" +
-                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
-            );
+    /** The plan checks run at startup, or null when FOCUSMATE_STARTUP_PLAN_CHECK is off or they failed. */
+    public static List<Map<String, Object>> startupPlans() {
+        return startupPlans;
+    }
 
-            System.out.println("✅ Database schema initialized successfully.");
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            SchemaMigrator.Result result = new SchemaMigrator().migrate();
+            lastResult = result;
+            for (SchemaMigrator.Applied m : result.applied) {
+                System.out.println("✅ Applied V" + m.version + " " + m.description + " in " + m.millis + " ms ("
+                        + m.statements + " statements, " + m.skipped + " already present)");
+            }
+            result.warnings.forEach(w -> System.err.println("⚠️ " + w));
+            System.out.println("✅ Database schema at version " + result.toVersion
+                    + (result.applied.isEmpty() ? "" : " (" + result.applied.size() + " applied in " + result.millis + " ms)"));
+        } catch (Exception e) {
+            System.err.println("⚠️ Database schema migration failed (app will use in-memory fallback): " + e.getMessage());
+            return;
+        }
+        if (!Config.getBoolean("FOCUSMATE_STARTUP_PLAN_CHECK", false)) return;
+        try {
+            List<Map<String, Object>> plans = QueryPlanCheck.run();
+            startupPlans = plans;
+            for (Map<String, Object> plan : plans) {
+                if (!Boolean.TRUE.equals(plan.get("ok"))) {
+                    System.err.println("⚠️ " + plan.get("query") + " does not use " + plan.get("expectedIndex")
+                            + " (key=" + plan.get("key") + ", filesort=" + plan.get("filesort") + ")");
+                }
+            }
         } catch (Exception e) {
-            System.err.println("⚠️ Database schema initialization failed (app will use in-memory fallback): " + e.getMessage());
+            System.err.println("⚠️ Query plan check failed: " + e.getMessage());
         }
     }
 }
@@ -0,0 +1,273 @@
+package com.focusmate.db;
+
+import com.focusmate.util.Config;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the database up to the newest script in classpath:db/migration.
+ * Scripts are named {@code V<version>__<description>.sql}, applied in version
+ * order, and recorded in schema_version with their checksum and run time, so
+ * each one runs once per database.
+ *
+ * <p>Instances starting together serialise on a MySQL named lock. MySQL
+ * commits DDL as it goes, so a script that fails half way is not rolled back;
+ * scripts must be safe to run again, and the runner helps by skipping
+ * {@code CREATE INDEX} and {@code ALTER TABLE ... ADD COLUMN} statements whose
+ * index or column already exists. Index builds should ask for
+ * {@code ALGORITHM=INPLACE LOCK=NONE} so that writes continue while they run,
+ * and every DDL statement waits at most FOCUSMATE_MIGRATION_DDL_LOCK_WAIT_SECONDS
+ * for the table's metadata lock instead of queueing all traffic behind a long
+ * transaction.
+ */
+public class SchemaMigrator {
+    private static final String LOCATION = "classpath*:db/migration/V*__*.sql";
+    private static final String LOCK_NAME = "focusmate.schema_migration";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(\\w+)\\s+ON\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ADD_COLUMN = Pattern.compile(
+            "^ALTER\\s+TABLE\\s+(\\w+)\\s+ADD\\s+COLUMN\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private final int lockTimeoutSeconds;
+    private final int ddlLockWaitSeconds;
+
+    public SchemaMigrator() {
+        this(Config.getInt("FOCUSMATE_MIGRATION_LOCK_TIMEOUT_SECONDS", 60),
+                Config.getInt("FOCUSMATE_MIGRATION_DDL_LOCK_WAIT_SECONDS", 10));
+    }
+
+    public SchemaMigrator(int lockTimeoutSeconds, int ddlLockWaitSeconds) {
+        this.lockTimeoutSeconds = Math.max(0, lockTimeoutSeconds);
+        this.ddlLockWaitSeconds = Math.max(1, ddlLockWaitSeconds);
+    }
+
+    public record Migration(int version, String description, String checksum, List<String> statements) {
+    }
+
+    public static class Applied {
+        public int version;
+        public String description;
+        public int statements;
+        public int skipped;
+        public long millis;
+    }
+
+    public static class Result {
+        public int fromVersion;
+        public int toVersion;
+        public List<Applied> applied = new ArrayList<>();
+        public List<String> warnings = new ArrayList<>();
+        public long millis;
+    }
+
+    /** Applies every script newer than the recorded version. */
+    public Result migrate() throws Exception {
+        try (Connection c = DB.get()) {
+            return migrate(c);
+        }
+    }
+
+    /** As {@link #migrate()}, on a connection the caller owns (tests migrate a scratch database this way). */
+    public Result migrate(Connection c) throws Exception {
+        List<Migration> migrations = load();
+        long started = System.nanoTime();
+        Result result = new Result();
+        if (!lock(c)) {
+            throw new IllegalStateException("Another instance held the migration lock for " + lockTimeoutSeconds + "s");
+        }
+        // Undone afterwards, since a pooled connection outlives this call.
+        int lockWait = -1;
+        try (Statement st = c.createStatement()) {
+            lockWait = sessionInt(c, "SELECT @@SESSION.lock_wait_timeout");
+            st.executeUpdate("SET SESSION lock_wait_timeout = " + ddlLockWaitSeconds);
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(200) NOT NULL, " +
+                    "checksum CHAR(8) NOT NULL, " +
+                    "execution_ms BIGINT NOT NULL, " +
+                    "installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            TreeMap<Integer, String> checksums = appliedChecksums(c);
+            result.fromVersion = checksums.isEmpty() ? 0 : checksums.lastKey();
+            result.toVersion = result.fromVersion;
+            for (Migration m : migrations) {
+                String recorded = checksums.get(m.version());
+                if (recorded != null) {
+                    if (!recorded.equals(m.checksum())) {
+                        result.warnings.add("V" + m.version() + " changed after it was applied (checksum "
+                                + recorded + " -> " + m.checksum() + ")");
+                    }
+                    continue;
+                }
+                result.applied.add(apply(c, m));
+                result.toVersion = Math.max(result.toVersion, m.version());
+            }
+        } finally {
+            try (Statement st = c.createStatement()) {
+                if (lockWait >= 0) st.executeUpdate("SET SESSION lock_wait_timeout = " + lockWait);
+                st.executeQuery("SELECT RELEASE_LOCK('" + LOCK_NAME + "')").close();
+            }
+        }
+        result.millis = (System.nanoTime() - started) / 1_000_000;
+        return result;
+    }
+
+    /** The scripts on the classpath, in version order. */
+    public List<Migration> load() throws IOException {
+        TreeMap<Integer, Migration> byVersion = new TreeMap<>();
+        for (Resource r : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            Matcher m = FILE_NAME.matcher(r.getFilename() != null ? r.getFilename() : "");
+            if (!m.matches()) throw new IOException("Migration file name must be V<version>__<description>.sql: " + r);
+            String script;
+            try (InputStream in = r.getInputStream()) {
+                script = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+            }
+            int version = Integer.parseInt(m.group(1));
+            Migration migration = new Migration(version, m.group(2).replace('_', ' '), checksum(script), statements(script));
+            if (byVersion.put(version, migration) != null) throw new IOException("Two migrations with version " + version);
+        }
+        return new ArrayList<>(byVersion.values());
+    }
+
+    /** Rows of schema_version, oldest first. */
+    public List<Map<String, Object>> history() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (Connection c = DB.get();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, description, checksum, execution_ms, installed_at " +
+                     "FROM schema_version ORDER BY version")) {
+            while (rs.next()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("version", rs.getInt(1));
+                row.put("description", rs.getString(2));
+                row.put("checksum", rs.getString(3));
+                row.put("executionMs", rs.getLong(4));
+                row.put("installedAt", String.valueOf(rs.getTimestamp(5).toLocalDateTime()));
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private Applied apply(Connection c, Migration m) throws Exception {
+        long start = System.nanoTime();
+        Applied applied = new Applied();
+        applied.version = m.version();
+        applied.description = m.description();
+        for (String sql : m.statements()) {
+            applied.statements++;
+            if (alreadyApplied(c, sql)) {
+                applied.skipped++;
+                continue;
+            }
+            try (Statement st = c.createStatement()) {
+                st.execute(sql);
+            } catch (Exception e) {
+                throw new IllegalStateException("V" + m.version() + " failed at statement " + applied.statements
+                        + ": " + e.getMessage(), e);
+            }
+        }
+        applied.millis = (System.nanoTime() - start) / 1_000_000;
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO schema_version(version, description, checksum, execution_ms) VALUES (?,?,?,?)")) {
+            ps.setInt(1, m.version());
+            ps.setString(2, m.description());
+            ps.setString(3, m.checksum());
+            ps.setLong(4, applied.millis);
+            ps.executeUpdate();
+        }
+        return applied;
+    }
+
+    /** True for an index or column addition whose target already exists, e.g. from before versioning. */
+    private boolean alreadyApplied(Connection c, String sql) throws Exception {
+        Matcher index = CREATE_INDEX.matcher(sql);
+        if (index.find()) {
+            return exists(c, "SELECT 1 FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?", index.group(2), index.group(1));
+        }
+        Matcher column = ADD_COLUMN.matcher(sql);
+        if (column.find()) {
+            return exists(c, "SELECT 1 FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?", column.group(1), column.group(2));
+        }
+        return false;
+    }
+
+    private boolean exists(Connection c, String sql, String table, String name) throws Exception {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private boolean lock(Connection c) throws Exception {
+        try (PreparedStatement ps = c.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, lockTimeoutSeconds);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private TreeMap<Integer, String> appliedChecksums(Connection c) throws Exception {
+        TreeMap<Integer, String> applied = new TreeMap<>();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) applied.put(rs.getInt(1), rs.getString(2));
+        }
+        return applied;
+    }
+
+    private static int sessionInt(Connection c, String sql) throws Exception {
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static String checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue());
+    }
+
+    /** Splits on semicolons that end a line; whole-line {@code --} comments are dropped. */
+    static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) continue;
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1).trim());
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) statements.add(current.toString().trim());
+        return statements;
+    }
+}
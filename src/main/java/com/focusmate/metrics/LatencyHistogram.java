@@ -0,0 +1,100 @@
+package com.focusmate.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative longs (nanoseconds, row counts): eight
+ * linear sub-buckets per power of two, so a reported quantile is within about
+ * 12% of the true value. Counts are striped by thread and recording only does
+ * array increments, so it never allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_OCTAVE = 40;
+    static final int BUCKETS = (MAX_OCTAVE - SUB_BITS + 1) * SUB + SUB;
+    private static final int SUM = BUCKETS;
+    private static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new AtomicLongArray(BUCKETS + 1);
+    }
+
+    private static int stripeCount() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return Math.min(16, Integer.highestOneBit(Math.max(1, cpus - 1)) << 1);
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().threadId() & (STRIPES - 1)];
+        stripe.getAndIncrement(bucket(value));
+        stripe.getAndAdd(SUM, value);
+        long m;
+        while (value > (m = max.get())) {
+            if (max.compareAndSet(m, value)) break;
+        }
+    }
+
+    /** Records the time elapsed since {@code startNanos} (a {@link System#nanoTime()} reading). */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int bucket(long v) {
+        if (v < SUB) return (int) v;
+        int octave = 63 - Long.numberOfLeadingZeros(v);
+        if (octave > MAX_OCTAVE) return BUCKETS - 1;
+        int sub = (int) (v >>> (octave - SUB_BITS)) & (SUB - 1);
+        return (octave - SUB_BITS + 1) * SUB + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB) return bucket;
+        int octave = bucket / SUB + SUB_BITS - 1;
+        int sub = bucket % SUB;
+        return ((long) (SUB + sub + 1) << (octave - SUB_BITS)) - 1;
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int b = 0; b < BUCKETS; b++) counts[b] += stripe.get(b);
+            sum += stripe.get(SUM);
+        }
+        return new Snapshot(counts, sum, max.get());
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        public final long count;
+        public final long sum;
+        public final long max;
+
+        Snapshot(long[] counts, long sum, long max) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) total += c;
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /** Upper bound of the bucket holding the q-th quantile, capped at the observed max. */
+        public long quantile(double q) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int b = 0; b < counts.length; b++) {
+                seen += counts[b];
+                if (seen >= rank) return Math.min(upperBound(b), max);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.focusmate.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Process-wide latency and row-count histograms, rendered by /api/metrics in
+ * the Prometheus text exposition format. Histograms are registered once (DAOs
+ * keep them in static fields) so the request path only records into them.
+ */
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private static final Map<String, Timer> DAO = new ConcurrentSkipListMap<>();
+    private static final Map<String, Endpoint> HTTP = new ConcurrentSkipListMap<>();
+    private static final Map<String, LatencyHistogram> SCHEDULER = new ConcurrentSkipListMap<>();
+    private static final Map<Object, Endpoint> HTTP_BY_KEY = new ConcurrentHashMap<>();
+
+    /** Latency and rows returned (or affected) for one DAO method. */
+    public static final class Timer {
+        public final LatencyHistogram latency = new LatencyHistogram();
+        public final LatencyHistogram rows = new LatencyHistogram();
+
+        public void record(long startNanos, long rowCount) {
+            latency.recordSince(startNanos);
+            rows.record(rowCount);
+        }
+    }
+
+    public static final class Endpoint {
+        public final LatencyHistogram latency = new LatencyHistogram();
+        public final LongAdder errors = new LongAdder();
+    }
+
+    public static Timer dao(String method) {
+        return DAO.computeIfAbsent(method, k -> new Timer());
+    }
+
+    public static LatencyHistogram scheduler(String operation) {
+        return SCHEDULER.computeIfAbsent(operation, k -> new LatencyHistogram());
+    }
+
+    /** Endpoint histogram registered under an identity key (the handler Method), or null. */
+    public static Endpoint endpoint(Object key) {
+        return HTTP_BY_KEY.get(key);
+    }
+
+    public static Endpoint registerEndpoint(Object key, String label) {
+        return HTTP_BY_KEY.computeIfAbsent(key, k -> HTTP.computeIfAbsent(label, l -> new Endpoint()));
+    }
+
+    public static void writePrometheus(StringBuilder out) {
+        writeSummaryFamily(out, "focusmate_dao_duration_seconds", "DAO method latency", "method",
+                DAO, t -> t.latency, 1e-9);
+        writeSummaryFamily(out, "focusmate_dao_rows", "Rows returned or affected per DAO call", "method",
+                DAO, t -> t.rows, 1);
+        writeSummaryFamily(out, "focusmate_http_request_duration_seconds", "Request latency per handler", "handler",
+                HTTP, e -> e.latency, 1e-9);
+        header(out, "focusmate_http_request_errors_total", "Requests that failed with a 5xx status or an exception", "counter");
+        HTTP.forEach((handler, e) -> sample(out, "focusmate_http_request_errors_total", "handler", handler, null, e.errors.sum()));
+        writeSummaryFamily(out, "focusmate_scheduler_duration_seconds", "Scheduler latency", "operation",
+                SCHEDULER, h -> h, 1e-9);
+    }
+
+    private static <T> void writeSummaryFamily(StringBuilder out, String name, String help, String label,
+                                               Map<String, T> series,
+                                               Function<T, LatencyHistogram> histogram,
+                                               double scale) {
+        if (series.isEmpty()) return;
+        header(out, name, help, "summary");
+        Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+        series.forEach((key, value) -> snapshots.put(key, histogram.apply(value).snapshot()));
+        snapshots.forEach((key, s) -> {
+            for (double q : QUANTILES) sample(out, name, label, key, q, s.quantile(q) * scale);
+            sample(out, name + "_sum", label, key, null, s.sum * scale);
+            sample(out, name + "_count", label, key, null, s.count);
+        });
+        header(out, name + "_max", help + " (maximum since start)", "gauge");
+        snapshots.forEach((key, s) -> sample(out, name + "_max", label, key, null, s.max * scale));
+    }
+
+    public static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    public static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    public static void counter(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    public static void sample(StringBuilder out, String name, String label, String value, Double quantile, double v) {
+        out.append(name).append('{').append(label).append("=\"").append(escape(value)).append('"');
+        if (quantile != null) out.append(",quantile=\"").append(quantile).append('"');
+        out.append("} ").append(format(v)).append('\n');
+    }
+
+    private static String format(double v) {
+        return v == Math.rint(v) && Math.abs(v) < 1e15 ? Long.toString((long) v) : Double.toString(v);
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
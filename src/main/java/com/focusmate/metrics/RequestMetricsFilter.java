@@ -0,0 +1,42 @@
+package com.focusmate.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Times every request that is routed to a controller method. For async
+ * responses (streaming bodies) this covers the time until the handler hands
+ * the response off, not the full transfer.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod hm) {
+                Metrics.Endpoint endpoint = Metrics.endpoint(hm.getMethod());
+                if (endpoint == null) {
+                    endpoint = Metrics.registerEndpoint(hm.getMethod(),
+                            hm.getBeanType().getSimpleName() + "." + hm.getMethod().getName());
+                }
+                endpoint.latency.recordSince(start);
+                if (failed) endpoint.errors.increment();
+            }
+        }
+    }
+}
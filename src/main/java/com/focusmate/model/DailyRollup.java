@@ -0,0 +1,11 @@
+package com.focusmate.model;
+
+import java.time.LocalDate;
+
+public class DailyRollup {
+    public Integer userId;
+    public LocalDate day;
+    public int minutes;
+    public int sessionCount;
+    public int manualStopCount;
+}
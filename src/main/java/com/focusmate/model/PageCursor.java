@@ -0,0 +1,45 @@
+package com.focusmate.model;
+
+import com.focusmate.util.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Keyset position of the last row on a page: its sort timestamp and id. The
+ * next page starts strictly after it, so paging never re-reads earlier rows.
+ * Handed to clients as an opaque URL-safe token.
+ */
+public record PageCursor(LocalDateTime time, int id) {
+    public static final int DEFAULT_LIMIT = Config.getInt("FOCUSMATE_PAGE_DEFAULT_LIMIT", 50);
+    public static final int MAX_LIMIT = Config.getInt("FOCUSMATE_PAGE_MAX_LIMIT", 200);
+
+    private static final String VERSION = "1";
+
+    public String encode() {
+        String raw = VERSION + ":" + time.toEpochSecond(ZoneOffset.UTC) + ":" + time.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Returns null for a null or blank token; throws IllegalArgumentException for a malformed one. */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 4 || !VERSION.equals(parts[0])) throw new IllegalArgumentException("Invalid cursor");
+            LocalDateTime time = LocalDateTime.ofEpochSecond(
+                    Long.parseLong(parts[1]), Integer.parseInt(parts[2]), ZoneOffset.UTC);
+            return new PageCursor(time, Integer.parseInt(parts[3]));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+
+    public static int limit(Integer requested) {
+        if (requested == null || requested <= 0) return Math.min(DEFAULT_LIMIT, MAX_LIMIT);
+        return Math.min(requested, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,177 @@
+package com.focusmate.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sessions stored column by column in parallel primitive arrays, for the
+ * analytics aggregations that would otherwise walk one {@link Session} object
+ * (plus its boxed ids and date-times) per row. Start times are kept as
+ * local-time epoch seconds, so {@code floorDiv(start, 86400)} is the epoch day.
+ *
+ * <p>Appends are not thread-safe. A {@link #snapshot()} shares the arrays
+ * with the live instance but has a fixed size, so it can be read while the
+ * owner keeps appending.
+ */
+public class SessionColumns {
+    public static final int NONE = Integer.MIN_VALUE;
+    private static final long NO_START = Long.MIN_VALUE;
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int MAX_DENSE_DAYS = 1 << 16;
+
+    private int size;
+    private int[] userIds;
+    private int[] taskIds;
+    private long[] startSeconds;
+    private int[] actualMinutes;
+    private int[] plannedMinutes;
+    private boolean[] stoppedManually;
+
+    public SessionColumns() {
+        this(16);
+    }
+
+    public SessionColumns(int capacity) {
+        capacity = Math.max(1, capacity);
+        userIds = new int[capacity];
+        taskIds = new int[capacity];
+        startSeconds = new long[capacity];
+        actualMinutes = new int[capacity];
+        plannedMinutes = new int[capacity];
+        stoppedManually = new boolean[capacity];
+    }
+
+    private SessionColumns(SessionColumns source) {
+        size = source.size;
+        userIds = source.userIds;
+        taskIds = source.taskIds;
+        startSeconds = source.startSeconds;
+        actualMinutes = source.actualMinutes;
+        plannedMinutes = source.plannedMinutes;
+        stoppedManually = source.stoppedManually;
+    }
+
+    public static SessionColumns of(List<Session> sessions) {
+        SessionColumns columns = new SessionColumns(sessions.size());
+        for (Session s : sessions) columns.add(s);
+        return columns;
+    }
+
+    public void add(Session s) {
+        add(s.userId != null ? s.userId : NONE, s.taskId != null ? s.taskId : NONE,
+                s.start, s.plannedMinutes, s.actualMinutes, s.stoppedManually);
+    }
+
+    public void add(int userId, int taskId, LocalDateTime start, int planned, int actual, boolean manual) {
+        if (size == userIds.length) grow();
+        userIds[size] = userId;
+        taskIds[size] = taskId;
+        startSeconds[size] = start != null ? start.toEpochSecond(ZoneOffset.UTC) : NO_START;
+        plannedMinutes[size] = planned;
+        actualMinutes[size] = actual;
+        stoppedManually[size] = manual;
+        size++;
+    }
+
+    // Growing copies into new arrays, so snapshots keep reading the old ones.
+    private void grow() {
+        int capacity = userIds.length * 2;
+        userIds = Arrays.copyOf(userIds, capacity);
+        taskIds = Arrays.copyOf(taskIds, capacity);
+        startSeconds = Arrays.copyOf(startSeconds, capacity);
+        actualMinutes = Arrays.copyOf(actualMinutes, capacity);
+        plannedMinutes = Arrays.copyOf(plannedMinutes, capacity);
+        stoppedManually = Arrays.copyOf(stoppedManually, capacity);
+    }
+
+    public SessionColumns snapshot() {
+        return new SessionColumns(this);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int totalMinutes() {
+        int total = 0;
+        for (int i = 0; i < size; i++) total += actualMinutes[i];
+        return total;
+    }
+
+    public int manualStopCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) if (stoppedManually[i]) count++;
+        return count;
+    }
+
+    public int countOnDay(LocalDate day) {
+        long from = day.toEpochDay() * SECONDS_PER_DAY;
+        long to = from + SECONDS_PER_DAY;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long start = startSeconds[i];
+            if (start >= from && start < to) count++;
+        }
+        return count;
+    }
+
+    public int minutesForTask(int taskId) {
+        int total = 0;
+        for (int i = 0; i < size; i++) if (taskIds[i] == taskId) total += actualMinutes[i];
+        return total;
+    }
+
+    public int countForTask(int taskId) {
+        int count = 0;
+        for (int i = 0; i < size; i++) if (taskIds[i] == taskId) count++;
+        return count;
+    }
+
+    /** Actual minutes per day for every day with at least one session, oldest first. */
+    public Map<LocalDate, Integer> minutesByDay() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (startSeconds[i] == NO_START) continue;
+            long day = Math.floorDiv(startSeconds[i], SECONDS_PER_DAY);
+            if (day < min) min = day;
+            if (day > max) max = day;
+        }
+        Map<LocalDate, Integer> result = new LinkedHashMap<>();
+        if (min > max) return result;
+
+        if (max - min < MAX_DENSE_DAYS) {
+            int span = (int) (max - min + 1);
+            int[] minutes = new int[span];
+            int[] counts = new int[span];
+            for (int i = 0; i < size; i++) {
+                if (startSeconds[i] == NO_START) continue;
+                int d = (int) (Math.floorDiv(startSeconds[i], SECONDS_PER_DAY) - min);
+                minutes[d] += actualMinutes[i];
+                counts[d]++;
+            }
+            for (int d = 0; d < span; d++) {
+                if (counts[d] > 0) result.put(LocalDate.ofEpochDay(min + d), minutes[d]);
+            }
+            return result;
+        }
+
+        TreeMap<Long, Integer> sparse = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            if (startSeconds[i] == NO_START) continue;
+            sparse.merge(Math.floorDiv(startSeconds[i], SECONDS_PER_DAY), actualMinutes[i], Integer::sum);
+        }
+        sparse.forEach((day, minutes) -> result.put(LocalDate.ofEpochDay(day), minutes));
+        return result;
+    }
+
+    public Iterable<LocalDate> activeDays() {
+        return minutesByDay().keySet();
+    }
+}
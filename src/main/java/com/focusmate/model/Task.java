@@ -10,6 +10,24 @@ public class Task {
     public int targetMinutes;
     public String status;
     public Integer userId;
+    /** Maintained alongside every session insert; see TaskDAO#addLogged. */
+    public int actualMinutes;
+    public int sessionCount;
+
+    /** A detached copy, for handing out tasks that a cache keeps updating. */
+    public Task copy() {
+        Task t = new Task();
+        t.id = id;
+        t.title = title;
+        t.priority = priority;
+        t.dueDate = dueDate;
+        t.targetMinutes = targetMinutes;
+        t.status = status;
+        t.userId = userId;
+        t.actualMinutes = actualMinutes;
+        t.sessionCount = sessionCount;
+        return t;
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,153 @@
+package com.focusmate.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tasks plus the fields the scheduler scores on, held in parallel primitive
+ * arrays so scoring loops read ints instead of chasing Task objects and boxed
+ * minutes. Row i is {@code task(i)}; row order is the load order.
+ *
+ * <p>Rows added with {@link #addRow} keep only the task id next to the scored
+ * fields; their Task objects are fetched through the {@link Loader} the first
+ * time they are asked for, so ranking every task only builds the ones a
+ * caller actually reads.
+ */
+public class TaskColumns {
+    public static final int NONE = Integer.MIN_VALUE;
+
+    /** Fetches whole tasks by id; ids with no task (deleted since) are left out of the result. */
+    public interface Loader {
+        Map<Integer, Task> load(int[] ids) throws Exception;
+    }
+
+    private final Loader loader;
+    private int size;
+    private Task[] tasks;
+    private int[] ids;
+    private int[] userIds;
+    private int[] priorities;
+    private int[] dueEpochDays;
+    private int[] targetMinutes;
+    private int[] actualMinutes;
+
+    public TaskColumns() {
+        this(16);
+    }
+
+    public TaskColumns(int capacity) {
+        this(capacity, null);
+    }
+
+    public TaskColumns(int capacity, Loader loader) {
+        this.loader = loader;
+        capacity = Math.max(1, capacity);
+        tasks = new Task[capacity];
+        ids = new int[capacity];
+        userIds = new int[capacity];
+        priorities = new int[capacity];
+        dueEpochDays = new int[capacity];
+        targetMinutes = new int[capacity];
+        actualMinutes = new int[capacity];
+    }
+
+    public static TaskColumns of(List<Task> tasks, Map<Integer, Integer> actualMinutes) {
+        TaskColumns columns = new TaskColumns(tasks.size());
+        for (Task t : tasks) columns.add(t, actualMinutes.getOrDefault(t.id, 0));
+        return columns;
+    }
+
+    public void add(Task t, int actual) {
+        tasks[size] = t;
+        addRow(t.id, t.userId != null ? t.userId : NONE, t.priority,
+                t.dueDate != null ? (int) t.dueDate.toEpochDay() : NONE, t.targetMinutes, actual);
+    }
+
+    /** A row without its Task, which the loader fetches by id when first read. */
+    public void addRow(int id, int userId, int priority, int dueEpochDay, int target, int actual) {
+        if (size == ids.length) grow();
+        ids[size] = id;
+        userIds[size] = userId;
+        priorities[size] = priority;
+        dueEpochDays[size] = dueEpochDay;
+        targetMinutes[size] = target;
+        actualMinutes[size] = actual;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        tasks = Arrays.copyOf(tasks, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        dueEpochDays = Arrays.copyOf(dueEpochDays, capacity);
+        targetMinutes = Arrays.copyOf(targetMinutes, capacity);
+        actualMinutes = Arrays.copyOf(actualMinutes, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** The row's task, or null if it was deleted after the columns were loaded. */
+    public Task task(int row) throws Exception {
+        if (tasks[row] == null) fetch(new int[]{row}, 0, 1);
+        return tasks[row];
+    }
+
+    /** The tasks of {@code rows[from..to)} in that order, fetching the missing ones in one go. */
+    public List<Task> tasks(int[] rows, int from, int to) throws Exception {
+        fetch(rows, from, to);
+        List<Task> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Task t = tasks[rows[i]];
+            if (t != null) result.add(t);
+        }
+        return result;
+    }
+
+    /** Makes sure the tasks of {@code rows[from..to)} are loaded, with one loader call for all the missing ones. */
+    public void fetch(int[] rows, int from, int to) throws Exception {
+        int missing = 0;
+        for (int i = from; i < to; i++) if (tasks[rows[i]] == null) missing++;
+        if (missing == 0 || loader == null) return;
+        int[] wanted = new int[missing];
+        int n = 0;
+        for (int i = from; i < to; i++) if (tasks[rows[i]] == null) wanted[n++] = ids[rows[i]];
+        Map<Integer, Task> loaded = loader.load(wanted);
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            if (tasks[row] == null) tasks[row] = loaded.get(ids[row]);
+        }
+    }
+
+    public int id(int row) {
+        return ids[row];
+    }
+
+    // The arrays below are shared, not copied, and may be longer than size().
+
+    public int[] userIds() {
+        return userIds;
+    }
+
+    public int[] priorities() {
+        return priorities;
+    }
+
+    /** Due dates as epoch days, {@link #NONE} when the task has none. */
+    public int[] dueEpochDays() {
+        return dueEpochDays;
+    }
+
+    public int[] targetMinutes() {
+        return targetMinutes;
+    }
+
+    public int[] actualMinutes() {
+        return actualMinutes;
+    }
+}
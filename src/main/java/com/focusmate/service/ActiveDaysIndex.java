@@ -0,0 +1,163 @@
+package com.focusmate.service;
+
+import com.focusmate.util.Config;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-user bitmap of days with at least one logged session, one bit per epoch day.
+ * Streaks are answered from the bitmap a word (64 days) at a time. The least
+ * recently used users are dropped past maxUsers; a dropped user's bitmap is
+ * simply seeded again on their next summary.
+ */
+public class ActiveDaysIndex {
+    public static final ActiveDaysIndex SHARED = new ActiveDaysIndex(
+            Config.getInt("FOCUSMATE_STREAK_INDEX_MAX_USERS", 10_000),
+            TimeUnit.MILLISECONDS.toNanos(Config.getLong("FOCUSMATE_STREAK_INDEX_TTL_MS", 300_000)));
+
+    private final int maxUsers;
+    private final long dbSeedTtlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, DayBitmap> users;
+
+    public ActiveDaysIndex(int maxUsers, long dbSeedTtlNanos) {
+        this.maxUsers = Math.max(1, maxUsers);
+        this.dbSeedTtlNanos = dbSeedTtlNanos;
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, DayBitmap> eldest) {
+                return size() > ActiveDaysIndex.this.maxUsers;
+            }
+        };
+    }
+
+    public void record(int userId, LocalDate day) {
+        bitmap(userId).set(day.toEpochDay());
+    }
+
+    /** True while the user's bitmap holds a recent merge of the days stored in MySQL. */
+    public boolean isSeededFromDb(int userId) {
+        DayBitmap bm = find(userId);
+        return bm != null && bm.dbSeededAt != 0 && System.nanoTime() - bm.dbSeededAt < dbSeedTtlNanos;
+    }
+
+    public void seedFromDb(int userId, Iterable<LocalDate> days) {
+        DayBitmap bm = bitmap(userId);
+        for (LocalDate day : days) bm.set(day.toEpochDay());
+        bm.dbSeededAt = System.nanoTime();
+    }
+
+    public boolean isSeededFromMemory(int userId) {
+        DayBitmap bm = find(userId);
+        return bm != null && bm.memorySeeded;
+    }
+
+    public void seedFromMemory(int userId, Iterable<LocalDate> days) {
+        DayBitmap bm = bitmap(userId);
+        for (LocalDate day : days) bm.set(day.toEpochDay());
+        bm.memorySeeded = true;
+    }
+
+    /** Consecutive active days ending today; zero when today has no session. */
+    public int currentStreak(int userId, LocalDate today) {
+        DayBitmap bm = find(userId);
+        return bm == null ? 0 : bm.runEndingAt(today.toEpochDay());
+    }
+
+    public int longestStreak(int userId) {
+        DayBitmap bm = find(userId);
+        return bm == null ? 0 : bm.longestRun();
+    }
+
+    private DayBitmap find(int userId) {
+        lock.lock();
+        try {
+            return users.get(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private DayBitmap bitmap(int userId) {
+        lock.lock();
+        try {
+            return users.computeIfAbsent(userId, id -> new DayBitmap());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static final class DayBitmap {
+        private long base;
+        private long[] words = new long[0];
+        volatile long dbSeededAt;
+        volatile boolean memorySeeded;
+
+        synchronized void set(long epochDay) {
+            long start = Math.floorDiv(epochDay, 64) * 64;
+            if (words.length == 0) {
+                base = start;
+                words = new long[1];
+            } else if (start < base) {
+                int extra = (int) ((base - start) >>> 6);
+                long[] grown = new long[words.length + extra];
+                System.arraycopy(words, 0, grown, extra, words.length);
+                words = grown;
+                base = start;
+            } else if (epochDay - base >= (long) words.length << 6) {
+                int needed = (int) ((epochDay - base) >>> 6) + 1;
+                long[] grown = new long[Math.max(needed, words.length * 2)];
+                System.arraycopy(words, 0, grown, 0, words.length);
+                words = grown;
+            }
+            long idx = epochDay - base;
+            words[(int) (idx >>> 6)] |= 1L << (idx & 63);
+        }
+
+        synchronized int runEndingAt(long epochDay) {
+            long idx = epochDay - base;
+            if (idx < 0 || idx >= (long) words.length << 6) return 0;
+            int w = (int) (idx >>> 6);
+            int bit = (int) (idx & 63);
+            // Align the end day with bit 63, then count leading ones.
+            long shifted = words[w] << (63 - bit);
+            int run = Long.numberOfLeadingZeros(~shifted);
+            if (run < bit + 1) return run;
+            run = bit + 1;
+            for (w--; w >= 0; w--) {
+                int ones = Long.numberOfLeadingZeros(~words[w]);
+                run += ones;
+                if (ones < 64) break;
+            }
+            return run;
+        }
+
+        synchronized int longestRun() {
+            int best = 0;
+            int run = 0;
+            for (long word : words) {
+                if (word == -1L) {
+                    run += 64;
+                    continue;
+                }
+                best = Math.max(best, run + Long.numberOfTrailingZeros(~word));
+                best = Math.max(best, longestRunInWord(word));
+                run = Long.numberOfLeadingZeros(~word);
+            }
+            return Math.max(best, run);
+        }
+
+        private static int longestRunInWord(long x) {
+            int n = 0;
+            while (x != 0) {
+                x &= x << 1;
+                n++;
+            }
+            return n;
+        }
+    }
+}
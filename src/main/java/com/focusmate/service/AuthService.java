@@ -0,0 +1,403 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.UserDAO;
+import com.focusmate.metrics.LatencyHistogram;
+import com.focusmate.model.User;
+import com.focusmate.util.Config;
+import com.focusmate.util.PasswordUtil;
+
+import java.security.SecureRandom;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Login and registration for AuthController. A bounded LRU of email to
+ * credentials (id, name, password hash) spares MySQL on repeat logins, and a
+ * Bloom filter of registered emails lets registration skip the "already
+ * registered?" lookup for new addresses; the UNIQUE key on users.email still
+ * settles races and sign-ups made through other instances.
+ *
+ * <p>Passwords are hashed on a fixed pool with a bounded queue rather than on
+ * request threads, so a deliberately slow KDF cannot tie up the server. When
+ * the queue is full or a hash waits past FOCUSMATE_AUTH_HASH_TIMEOUT_MS the
+ * call fails with {@link RejectedExecutionException} or
+ * {@link TimeoutException}, which the controller answers with 503.
+ *
+ * <p>A login for an unknown email still verifies the password, against a
+ * dummy hash at the configured cost, so response times do not tell callers
+ * which emails are registered.
+ */
+public class AuthService {
+    public static final AuthService SHARED = new AuthService(
+            new UserDAO(),
+            Config.getInt("FOCUSMATE_AUTH_PBKDF2_ITERATIONS", 100_000),
+            Config.getInt("FOCUSMATE_AUTH_CACHE_MAX_EMAILS", 10_000),
+            Config.getLong("FOCUSMATE_AUTH_CACHE_TTL_MS", 600_000),
+            Config.getInt("FOCUSMATE_AUTH_FILTER_EXPECTED_EMAILS", 1_000_000),
+            Config.getInt("FOCUSMATE_AUTH_HASH_THREADS", Runtime.getRuntime().availableProcessors()),
+            Config.getInt("FOCUSMATE_AUTH_HASH_QUEUE", 64),
+            Config.getLong("FOCUSMATE_AUTH_HASH_TIMEOUT_MS", 5_000));
+
+    private static final long FILTER_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private record Credentials(int id, String email, String name, String passwordHash, long loadedAt) {
+        static Credentials of(User user) {
+            return new Credentials(user.id, user.email, user.name, user.passwordHash, System.nanoTime());
+        }
+
+        User toUser() {
+            User user = new User();
+            user.id = id;
+            user.email = email;
+            user.name = name;
+            user.passwordHash = passwordHash;
+            return user;
+        }
+    }
+
+    private final UserDAO userDAO;
+    private final int iterations;
+    private final int maxEmails;
+    private final long ttlNanos;
+    private final long hashTimeoutMs;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Credentials> credentials;
+    private final EmailFilter filter;
+    private final AtomicBoolean filterLoading = new AtomicBoolean();
+    private volatile boolean filterReady;
+    private volatile long filterRetryAt;
+    private final ThreadPoolExecutor hashPool;
+    private final String dummyHash;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder filterSkips = new LongAdder();
+    private final LongAdder filterFalsePositives = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder upgrades = new LongAdder();
+    private final LongAdder unknownEmails = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LatencyHistogram hashWait = new LatencyHistogram();
+    private final LatencyHistogram hashTime = new LatencyHistogram();
+
+    public AuthService(UserDAO userDAO, int iterations, int maxEmails, long ttlMs, int expectedEmails,
+                       int hashThreads, int hashQueue, long hashTimeoutMs) {
+        this.userDAO = userDAO;
+        this.iterations = iterations;
+        this.maxEmails = Math.max(0, maxEmails);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.hashTimeoutMs = hashTimeoutMs;
+        this.credentials = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Credentials> eldest) {
+                if (size() <= AuthService.this.maxEmails) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+        this.filter = new EmailFilter(Math.max(1_000, expectedEmails));
+        int threads = Math.max(1, hashThreads);
+        this.hashPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, hashQueue)), r -> {
+                    Thread t = new Thread(r, "focusmate-auth-hash");
+                    t.setDaemon(true);
+                    return t;
+                });
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        this.dummyHash = PasswordUtil.hash(Base64.getEncoder().encodeToString(random), iterations);
+    }
+
+    /** The user if the password matches, otherwise null. Legacy hashes are upgraded on success. */
+    public User authenticate(String email, String password) throws Exception {
+        Credentials found = lookup(normalize(email));
+        if (found == null) {
+            // Costs what a wrong password for a real account costs, and is queued the same way.
+            unknownEmails.increment();
+            onHashPool(() -> PasswordUtil.verify(password, dummyHash));
+            return null;
+        }
+        if (!onHashPool(() -> PasswordUtil.verify(password, found.passwordHash))) return null;
+        if (PasswordUtil.needsRehash(found.passwordHash, iterations)) upgrade(found, password);
+        return found.toUser();
+    }
+
+    /** Creates the user, or returns null when the email is already registered. */
+    public User register(String name, String email, String password) throws Exception {
+        String key = normalize(email);
+        if (mightBeRegistered(key)) {
+            if (lookup(key) != null) {
+                duplicates.increment();
+                return null;
+            }
+            if (filterReady) filterFalsePositives.increment();
+        }
+        User user = new User();
+        user.email = key;
+        user.name = name.trim();
+        user.passwordHash = onHashPool(() -> PasswordUtil.hash(password, iterations));
+        try {
+            userDAO.insert(user);
+        } catch (SQLIntegrityConstraintViolationException e) {
+            duplicates.increment();
+            return null;
+        }
+        filter.add(key);
+        put(Credentials.of(user));
+        return user;
+    }
+
+    private Credentials lookup(String email) throws Exception {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Credentials cached = credentials.get(email);
+            if (cached != null) {
+                if (now - cached.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return cached;
+                }
+                credentials.remove(email);
+                expirations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        User user = userDAO.findByEmail(email);
+        if (user == null) return null;
+        Credentials loaded = Credentials.of(user);
+        put(loaded);
+        return loaded;
+    }
+
+    private void put(Credentials entry) {
+        if (maxEmails == 0) return;
+        lock.lock();
+        try {
+            credentials.put(entry.email, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void invalidate(String email) {
+        lock.lock();
+        try {
+            credentials.remove(email);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void upgrade(Credentials found, String password) {
+        // The login has already succeeded; a failed upgrade is retried on the next one.
+        try {
+            String rehashed = onHashPool(() -> PasswordUtil.hash(password, iterations));
+            if (userDAO.updatePasswordHash(found.id, found.passwordHash, rehashed)) {
+                put(new Credentials(found.id, found.email, found.name, rehashed, System.nanoTime()));
+                upgrades.increment();
+            } else {
+                invalidate(found.email);
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not upgrade password hash for user " + found.id + ": " + e.getMessage());
+        }
+    }
+
+    /** False only when the filter is loaded and has never seen the email. */
+    private boolean mightBeRegistered(String email) {
+        if (!filterReady) {
+            startFilterLoad();
+            return true;
+        }
+        if (filter.mightContain(email)) return true;
+        filterSkips.increment();
+        return false;
+    }
+
+    // Loaded in the background on first use; until it is ready every check goes to MySQL.
+    private void startFilterLoad() {
+        if (System.nanoTime() < filterRetryAt || !filterLoading.compareAndSet(false, true)) return;
+        Thread loader = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                long emails = userDAO.forEachEmail(filter::add);
+                filterReady = true;
+                System.out.println("✅ Email filter loaded with " + emails + " addresses in "
+                        + (System.currentTimeMillis() - start) + "ms");
+            } catch (Exception e) {
+                filterRetryAt = System.nanoTime() + FILTER_RETRY_NANOS;
+                System.err.println("⚠️ Email filter load failed (registration checks go to the database): "
+                        + e.getMessage());
+            } finally {
+                filterLoading.set(false);
+            }
+        }, "focusmate-auth-filter");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private <T> T onHashPool(Callable<T> work) throws Exception {
+        long queued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = hashPool.submit(() -> {
+                long start = System.nanoTime();
+                hashWait.record(start - queued);
+                try {
+                    return work.call();
+                } finally {
+                    hashTime.recordSince(start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return future.get(hashTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            timeouts.increment();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase();
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        lock.lock();
+        try {
+            size = credentials.size();
+        } finally {
+            lock.unlock();
+        }
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("emails", size);
+        cache.put("maxEmails", maxEmails);
+        cache.put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        cache.put("hits", hitCount);
+        cache.put("misses", misses.sum());
+        cache.put("hitRatio", lookups == 0 ? 0.0 : hitCount / (double) lookups);
+        cache.put("evictions", evictions.sum());
+        cache.put("expirations", expirations.sum());
+
+        Map<String, Object> emailFilter = new LinkedHashMap<>();
+        emailFilter.put("ready", filterReady);
+        emailFilter.put("added", filter.added.sum());
+        emailFilter.put("bits", filter.bits);
+        emailFilter.put("hashes", filter.hashes);
+        emailFilter.put("skippedLookups", filterSkips.sum());
+        emailFilter.put("falsePositives", filterFalsePositives.sum());
+
+        LatencyHistogram.Snapshot wait = hashWait.snapshot();
+        LatencyHistogram.Snapshot time = hashTime.snapshot();
+        Map<String, Object> hashing = new LinkedHashMap<>();
+        hashing.put("pbkdf2Iterations", iterations);
+        hashing.put("threads", hashPool.getMaximumPoolSize());
+        hashing.put("queued", hashPool.getQueue().size());
+        hashing.put("queueCapacity", hashPool.getQueue().size() + hashPool.getQueue().remainingCapacity());
+        hashing.put("completed", hashPool.getCompletedTaskCount());
+        hashing.put("rejected", rejected.sum());
+        hashing.put("timeouts", timeouts.sum());
+        hashing.put("waitP99Ms", wait.quantile(0.99) / 1e6);
+        hashing.put("hashP50Ms", time.quantile(0.5) / 1e6);
+        hashing.put("hashP99Ms", time.quantile(0.99) / 1e6);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cache", cache);
+        result.put("filter", emailFilter);
+        result.put("hashing", hashing);
+        result.put("duplicateRegistrations", duplicates.sum());
+        result.put("hashUpgrades", upgrades.sum());
+        result.put("unknownEmailLogins", unknownEmails.sum());
+        return result;
+    }
+
+    /**
+     * Bloom filter sized for a 1% false-positive rate at the expected count.
+     * Bits are only ever set, so concurrent adds and reads need no lock.
+     */
+    static final class EmailFilter {
+        final AtomicLongArray words;
+        final long bits;
+        final int hashes;
+        final LongAdder added = new LongAdder();
+
+        EmailFilter(int expected) {
+            double ln2 = Math.log(2);
+            long m = (long) Math.ceil(-expected * Math.log(0.01) / (ln2 * ln2));
+            words = new AtomicLongArray((int) ((m + 63) / 64));
+            bits = words.length() * 64L;
+            hashes = Math.max(1, (int) Math.round(bits / (double) expected * ln2));
+        }
+
+        void add(String email) {
+            long h = fnv1a(email);
+            long h1 = mix(h);
+            long h2 = mix(h ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << bit;
+                words.getAndAccumulate((int) (bit >>> 6), mask, (a, b) -> a | b);
+            }
+            added.increment();
+        }
+
+        boolean mightContain(String email) {
+            long h = fnv1a(email);
+            long h1 = mix(h);
+            long h2 = mix(h ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        private static long fnv1a(String s) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+
+        // MurmurHash3's 64-bit finaliser.
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.SessionDAO;
+import com.focusmate.dao.TaskDAO;
+import com.focusmate.db.DbHealth;
+import com.focusmate.db.RowReader;
+import com.focusmate.model.Session;
+import com.focusmate.model.Task;
+import com.focusmate.util.Config;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Imports a user's history from a {@link RowReader}. Rows are validated as
+ * they are read and written in chunks, one batched transaction per chunk, so
+ * heap use is bounded by the chunk size rather than the upload. A bad row is
+ * skipped and reported; a failed chunk is rolled back and reported, and the
+ * import carries on with the next chunk unless the database has gone away.
+ *
+ * <p>Column names are matched case-insensitively with underscores ignored, so
+ * both our own exports (taskId, start) and DumpTable output (task_id,
+ * start_time) can be imported.
+ */
+public class BulkImporter {
+    private final int chunkSize;
+    private final int maxErrors;
+    private final SessionDAO sessionDAO = new SessionDAO();
+    private final TaskDAO taskDAO = new TaskDAO();
+
+    public BulkImporter() {
+        this(Config.getInt("FOCUSMATE_IMPORT_CHUNK_SIZE", 5_000), Config.getInt("FOCUSMATE_IMPORT_MAX_ERRORS", 100));
+    }
+
+    public BulkImporter(int chunkSize, int maxErrors) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = Math.max(0, maxErrors);
+    }
+
+    public static class Report {
+        public long rowsRead;
+        public long inserted;
+        public long rejected;
+        public boolean aborted;
+        public long millis;
+        public List<Chunk> chunks = new ArrayList<>();
+        /** The first FOCUSMATE_IMPORT_MAX_ERRORS problems; {@code rejected} has the full count. */
+        public List<String> errors = new ArrayList<>();
+    }
+
+    public static class Chunk {
+        public int index;
+        public long firstRow;
+        public long lastRow;
+        public int inserted;
+        public long millis;
+        public String error;
+    }
+
+    private interface RowMapper<T> {
+        T map(Map<String, Object> row);
+    }
+
+    private interface ChunkWriter<T> {
+        void write(List<T> rows) throws Exception;
+    }
+
+    public Report importSessions(int userId, RowReader reader) throws Exception {
+        Set<Integer> ownTasks = new HashSet<>();
+        for (Task t : taskDAO.listAll(userId)) ownTasks.add(t.id);
+        Report report = run(reader, row -> session(userId, ownTasks, row), sessionDAO::insertBatch,
+                s -> ActiveDaysIndex.SHARED.record(userId, s.start.toLocalDate()));
+        if (report.inserted > 0) {
+            TaskListCache.SHARED.invalidate(userId);
+            PriorityIndex.SHARED.invalidate(userId);
+        }
+        return report;
+    }
+
+    public Report importTasks(int userId, RowReader reader) throws Exception {
+        Report report = run(reader, row -> task(userId, row), taskDAO::insertBatch, t -> {
+        });
+        if (report.inserted > 0) {
+            TaskListCache.SHARED.invalidate(userId);
+            PriorityIndex.SHARED.invalidate(userId);
+        }
+        return report;
+    }
+
+    private <T> Report run(RowReader reader, RowMapper<T> mapper, ChunkWriter<T> writer, Consumer<T> committed)
+            throws Exception {
+        long started = System.nanoTime();
+        Report report = new Report();
+        List<T> pending = new ArrayList<>(chunkSize);
+        long firstRow = 0;
+        long lastRow = 0;
+        RowReader.Row row;
+        while ((row = read(reader, report)) != null) {
+            report.rowsRead++;
+            T value = null;
+            String error = row.error();
+            if (error == null) {
+                try {
+                    value = mapper.map(normalize(row.values()));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error != null) {
+                reject(report, "row " + row.number() + ": " + error);
+                continue;
+            }
+            if (pending.isEmpty()) firstRow = row.number();
+            lastRow = row.number();
+            pending.add(value);
+            if (pending.size() == chunkSize && !flush(report, pending, firstRow, lastRow, writer, committed)) break;
+        }
+        // Rows read before a broken upload are still good, so they are kept.
+        if (!pending.isEmpty()) flush(report, pending, firstRow, lastRow, writer, committed);
+        report.millis = (System.nanoTime() - started) / 1_000_000;
+        return report;
+    }
+
+    private RowReader.Row read(RowReader reader, Report report) {
+        try {
+            return reader.next();
+        } catch (IOException e) {
+            report.aborted = true;
+            addError(report, "Upload could not be read after row " + report.rowsRead + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Writes one chunk; returns false once the database is unavailable and the import should stop. */
+    private <T> boolean flush(Report report, List<T> pending, long firstRow, long lastRow,
+                              ChunkWriter<T> writer, Consumer<T> committed) {
+        Chunk chunk = new Chunk();
+        chunk.index = report.chunks.size();
+        chunk.firstRow = firstRow;
+        chunk.lastRow = lastRow;
+        long start = System.nanoTime();
+        try {
+            writer.write(pending);
+            chunk.inserted = pending.size();
+            report.inserted += pending.size();
+            pending.forEach(committed);
+        } catch (Exception e) {
+            chunk.error = e.getMessage();
+            report.rejected += pending.size();
+            addError(report, "rows " + firstRow + "-" + lastRow + ": " + e.getMessage());
+            System.err.println("⚠️ Import chunk " + chunk.index + " failed: " + e.getMessage());
+        }
+        chunk.millis = (System.nanoTime() - start) / 1_000_000;
+        report.chunks.add(chunk);
+        pending.clear();
+        if (chunk.error != null && !DbHealth.SHARED.isAvailable()) {
+            report.aborted = true;
+            addError(report, "Import stopped after row " + lastRow + ": database unavailable");
+            return false;
+        }
+        return true;
+    }
+
+    private void reject(Report report, String message) {
+        report.rejected++;
+        addError(report, message);
+    }
+
+    private void addError(Report report, String message) {
+        if (report.errors.size() < maxErrors) report.errors.add(message);
+    }
+
+    private static Session session(int userId, Set<Integer> ownTasks, Map<String, Object> row) {
+        Session s = new Session();
+        s.userId = userId;
+        s.taskId = integer(row, "taskid");
+        if (s.taskId != null && !ownTasks.contains(s.taskId)) {
+            throw new IllegalArgumentException("taskId " + s.taskId + " is not one of your tasks");
+        }
+        s.start = dateTime(row, "start", "starttime");
+        s.end = dateTime(row, "end", "endtime");
+        if (s.end.isBefore(s.start)) throw new IllegalArgumentException("end is before start");
+        s.plannedMinutes = minutes(row, "plannedminutes");
+        s.actualMinutes = minutes(row, "actualminutes");
+        s.stoppedManually = bool(row, "stoppedmanually");
+        return s;
+    }
+
+    private static Task task(int userId, Map<String, Object> row) {
+        Task t = new Task();
+        t.userId = userId;
+        Object title = row.get("title");
+        if (title == null || title.toString().isBlank()) throw new IllegalArgumentException("title is required");
+        t.title = title.toString().trim();
+        if (t.title.length() > 255) throw new IllegalArgumentException("title is longer than 255 characters");
+        Integer priority = integer(row, "priority");
+        t.priority = priority != null ? priority : 0;
+        Object due = row.get("duedate");
+        t.dueDate = due != null && !due.toString().isBlank() ? LocalDate.parse(due.toString().trim()) : null;
+        t.targetMinutes = minutes(row, "targetminutes");
+        Object status = row.get("status");
+        t.status = status != null && !status.toString().isBlank() ? status.toString().trim() : "PENDING";
+        if (t.status.length() > 32) throw new IllegalArgumentException("status is longer than 32 characters");
+        return t;
+    }
+
+    private static Map<String, Object> normalize(Map<String, Object> row) {
+        Map<String, Object> keyed = new HashMap<>(row.size() * 2);
+        row.forEach((k, v) -> keyed.put(k.replace("_", "").toLowerCase(Locale.ROOT), v));
+        return keyed;
+    }
+
+    private static Integer integer(Map<String, Object> row, String key) {
+        Object value = row.get(key);
+        if (value == null) return null;
+        if (value instanceof Integer i) return i;
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " is not an integer: " + value);
+        }
+    }
+
+    private static int minutes(Map<String, Object> row, String key) {
+        Integer value = integer(row, key);
+        if (value == null) return 0;
+        if (value < 0) throw new IllegalArgumentException(key + " must not be negative");
+        return value;
+    }
+
+    private static boolean bool(Map<String, Object> row, String key) {
+        Object value = row.get(key);
+        if (value == null) return false;
+        if (value instanceof Boolean b) return b;
+        String s = value.toString().trim();
+        return s.equalsIgnoreCase("true") || s.equals("1");
+    }
+
+    private static LocalDateTime dateTime(Map<String, Object> row, String... keys) {
+        for (String key : keys) {
+            Object value = row.get(key);
+            if (value != null) return LocalDateTime.parse(value.toString().trim());
+        }
+        throw new IllegalArgumentException(keys[0] + " is required");
+    }
+}
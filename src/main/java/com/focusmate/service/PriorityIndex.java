@@ -0,0 +1,408 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.TaskDAO;
+import com.focusmate.metrics.LatencyHistogram;
+import com.focusmate.metrics.Metrics;
+import com.focusmate.model.Task;
+import com.focusmate.store.IntObjectMap;
+import com.focusmate.util.Config;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Each user's PENDING tasks kept in an indexed max-heap ordered by
+ * {@link Scheduler} score, so the top k come out in O(k log k) without
+ * re-sorting. TaskController and SessionController feed task writes and
+ * logged minutes in as they happen; a user's heap is loaded on first use,
+ * dropped after FOCUSMATE_PRIORITY_INDEX_TTL_MS to pick up writes made
+ * elsewhere, and rescored at midnight because the deadline term depends on
+ * the date. The heap owns its Task objects; {@link #top} hands out copies.
+ */
+public class PriorityIndex {
+    public static final PriorityIndex SHARED = new PriorityIndex(new TaskDAO(),
+            Config.getInt("FOCUSMATE_PRIORITY_INDEX_MAX_USERS", 1_000),
+            Config.getLong("FOCUSMATE_PRIORITY_INDEX_TTL_MS", 300_000));
+
+    private static final LatencyHistogram TOP = Metrics.scheduler("top");
+    private static final LatencyHistogram LOAD = Metrics.scheduler("indexLoad");
+    private static final LatencyHistogram RESCORE = Metrics.scheduler("rescore");
+    private static final int VERSION_STRIPES = 4096;
+
+    /** Every task of the user is tracked so its minutes survive leaving and re-entering the heap. */
+    private static final class Entry {
+        Task task;
+        int actual;
+        double score;
+        int pos = -1; // -1 while not PENDING
+    }
+
+    /** Higher score first; ties go to the newer task, as in the created_at DESC listing. */
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int c = Double.compare(b.score, a.score);
+        return c != 0 ? c : Integer.compare(b.task.id, a.task.id);
+    };
+
+    private final TaskDAO dao;
+    private final Scheduler scorer;
+    private final int maxUsers;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, UserHeap> users;
+    // A user's stripe is bumped on every change to that user's tasks, and the epoch when everything is
+    // dropped; a load that overlapped either is used once but not kept. Striping keeps this bounded while
+    // writes by other users (bar the rare one sharing a stripe) no longer throw a load away.
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong epoch = new AtomicLong();
+    private final LongAdder discardedLoads = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder rescores = new LongAdder();
+
+    public PriorityIndex(TaskDAO dao, int maxUsers, long ttlMs) {
+        this.dao = dao;
+        this.scorer = new Scheduler(dao);
+        this.maxUsers = Math.max(1, maxUsers);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, UserHeap> eldest) {
+                return size() > PriorityIndex.this.maxUsers;
+            }
+        };
+        ScheduledExecutorService midnight = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "focusmate-priority-rescore");
+            t.setDaemon(true);
+            return t;
+        });
+        long untilMidnight = Duration.between(LocalDateTime.now(),
+                LocalDate.now().plusDays(1).atStartOfDay()).toMillis();
+        midnight.scheduleAtFixedRate(this::rescoreAll, untilMidnight + 1_000,
+                TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /** The user's k highest-scoring pending tasks, best first. */
+    public List<Task> top(int userId, int k) throws Exception {
+        long start = System.nanoTime();
+        try {
+            UserHeap heap = heap(userId);
+            heap.lock.lock();
+            try {
+                heap.rescoreIfStale(LocalDate.now());
+                // Copies, so later minutesLogged calls don't change what the caller is serialising.
+                List<Task> top = heap.top(k);
+                top.replaceAll(Task::copy);
+                return top;
+            } finally {
+                heap.lock.unlock();
+            }
+        } finally {
+            TOP.recordSince(start);
+        }
+    }
+
+    /** Adds, moves or drops the task after a create or status change; only PENDING tasks are ranked. */
+    public void taskChanged(Task task) {
+        if (task.userId == null || task.id == null) return;
+        bump(task.userId);
+        UserHeap heap = loaded(task.userId);
+        if (heap == null) return;
+        heap.lock.lock();
+        try {
+            heap.upsert(task);
+        } finally {
+            heap.lock.unlock();
+        }
+        updates.increment();
+    }
+
+    public void taskRemoved(int userId, int taskId) {
+        bump(userId);
+        UserHeap heap = loaded(userId);
+        if (heap == null) return;
+        heap.lock.lock();
+        try {
+            heap.remove(taskId);
+        } finally {
+            heap.lock.unlock();
+        }
+        updates.increment();
+    }
+
+    /** A session logged minutes against the task, which shrinks its target gap. */
+    public void minutesLogged(int userId, Integer taskId, int minutes) {
+        if (taskId == null || minutes == 0) return;
+        bump(userId);
+        UserHeap heap = loaded(userId);
+        if (heap == null) return;
+        heap.lock.lock();
+        try {
+            heap.addMinutes(taskId, minutes);
+        } finally {
+            heap.lock.unlock();
+        }
+        updates.increment();
+    }
+
+    /** Drops the user's heap so the next read reloads it, e.g. after a bulk import. */
+    public void invalidate(int userId) {
+        bump(userId);
+        lock.lock();
+        try {
+            users.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        epoch.incrementAndGet();
+        lock.lock();
+        try {
+            users.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        lock.lock();
+        try {
+            size = users.size();
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", size);
+        result.put("maxUsers", maxUsers);
+        result.put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        result.put("hits", hits.sum());
+        result.put("loads", loads.sum());
+        result.put("discardedLoads", discardedLoads.sum());
+        result.put("updates", updates.sum());
+        result.put("rescores", rescores.sum());
+        return result;
+    }
+
+    private void bump(int userId) {
+        versions.incrementAndGet(stripe(userId));
+    }
+
+    private static int stripe(int userId) {
+        return Math.floorMod(userId, VERSION_STRIPES);
+    }
+
+    private UserHeap loaded(int userId) {
+        lock.lock();
+        try {
+            UserHeap heap = users.get(userId);
+            if (heap != null && System.nanoTime() - heap.loadedAt >= ttlNanos) {
+                users.remove(userId);
+                return null;
+            }
+            return heap;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UserHeap heap(int userId) throws Exception {
+        UserHeap heap = loaded(userId);
+        if (heap != null) {
+            hits.increment();
+            return heap;
+        }
+        long start = System.nanoTime();
+        long epochBefore = epoch.get();
+        long versionBefore = versions.get(stripe(userId));
+        heap = new UserHeap(dao.listAll(userId), LocalDate.now());
+        loads.increment();
+        LOAD.recordSince(start);
+        lock.lock();
+        try {
+            if (epoch.get() == epochBefore && versions.get(stripe(userId)) == versionBefore) users.put(userId, heap);
+            else discardedLoads.increment();
+        } finally {
+            lock.unlock();
+        }
+        return heap;
+    }
+
+    private void rescoreAll() {
+        List<UserHeap> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(users.values());
+        } finally {
+            lock.unlock();
+        }
+        LocalDate today = LocalDate.now();
+        for (UserHeap heap : snapshot) {
+            heap.lock.lock();
+            try {
+                heap.rescoreIfStale(today);
+            } finally {
+                heap.lock.unlock();
+            }
+        }
+    }
+
+    private final class UserHeap {
+        final ReentrantLock lock = new ReentrantLock();
+        final long loadedAt = System.nanoTime();
+        final IntObjectMap<Entry> byTask = new IntObjectMap<>();
+        Entry[] heap;
+        int size;
+        LocalDate scoredFor;
+
+        UserHeap(List<Task> tasks, LocalDate today) {
+            heap = new Entry[Math.max(16, tasks.size())];
+            for (Task t : tasks) {
+                Entry e = new Entry();
+                e.task = t;
+                e.actual = t.actualMinutes;
+                byTask.put(t.id, e);
+                if (isPending(t)) {
+                    e.pos = size;
+                    heap[size++] = e;
+                }
+            }
+            rescoreIfStale(today);
+        }
+
+        private boolean isPending(Task t) {
+            return "PENDING".equals(t.status);
+        }
+
+        /** Recomputes every score for the new day and re-heapifies in O(n). */
+        void rescoreIfStale(LocalDate today) {
+            if (today.equals(scoredFor)) return;
+            long start = System.nanoTime();
+            for (int i = 0; i < size; i++) heap[i].score = scorer.score(heap[i].task, heap[i].actual, today);
+            for (int i = size / 2 - 1; i >= 0; i--) siftDown(i);
+            if (scoredFor != null) {
+                rescores.increment();
+                RESCORE.recordSince(start);
+            }
+            scoredFor = today;
+        }
+
+        List<Task> top(int k) {
+            int n = Math.min(k, size);
+            List<Task> result = new ArrayList<>(n);
+            if (n == 0) return result;
+            // Best-first walk of the heap: the next best is always a child of one already taken.
+            PriorityQueue<Entry> frontier = new PriorityQueue<>(ORDER);
+            frontier.add(heap[0]);
+            while (result.size() < n) {
+                Entry e = frontier.poll();
+                result.add(e.task);
+                int child = 2 * e.pos + 1;
+                if (child < size) frontier.add(heap[child]);
+                if (child + 1 < size) frontier.add(heap[child + 1]);
+            }
+            return result;
+        }
+
+        void upsert(Task task) {
+            Entry e = byTask.get(task.id);
+            if (e == null) {
+                e = new Entry();
+                byTask.put(task.id, e);
+            }
+            // A copy: addMinutes updates it under the heap lock, which the caller's object is not behind.
+            e.task = task.copy();
+            if (!isPending(task)) {
+                unlink(e);
+                return;
+            }
+            if (e.pos < 0) {
+                if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+                e.pos = size;
+                heap[size++] = e;
+            }
+            rescore(e);
+        }
+
+        void addMinutes(int taskId, int minutes) {
+            Entry e = byTask.get(taskId);
+            if (e == null) return;
+            e.actual += minutes;
+            // Keeps the counters that /scheduled returns in step with the ones TaskDAO maintains.
+            e.task.actualMinutes += minutes;
+            e.task.sessionCount++;
+            if (e.pos >= 0) rescore(e);
+        }
+
+        void remove(int taskId) {
+            Entry e = byTask.remove(taskId);
+            if (e != null) unlink(e);
+        }
+
+        private void unlink(Entry e) {
+            if (e.pos < 0) return;
+            int pos = e.pos;
+            e.pos = -1;
+            Entry last = heap[--size];
+            heap[size] = null;
+            if (pos == size) return;
+            heap[pos] = last;
+            last.pos = pos;
+            siftUp(pos);
+            siftDown(last.pos);
+        }
+
+        private void rescore(Entry e) {
+            e.score = scorer.score(e.task, e.actual, scoredFor);
+            siftUp(e.pos);
+            siftDown(e.pos);
+        }
+
+        private void siftUp(int i) {
+            Entry e = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (ORDER.compare(e, heap[parent]) >= 0) break;
+                place(heap[parent], i);
+                i = parent;
+            }
+            place(e, i);
+        }
+
+        private void siftDown(int i) {
+            Entry e = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && ORDER.compare(heap[child + 1], heap[child]) < 0) child++;
+                if (ORDER.compare(heap[child], e) >= 0) break;
+                place(heap[child], i);
+                i = child;
+            }
+            place(e, i);
+        }
+
+        private void place(Entry e, int i) {
+            heap[i] = e;
+            e.pos = i;
+        }
+    }
+}
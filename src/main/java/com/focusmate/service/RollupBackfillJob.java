@@ -0,0 +1,40 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.DailyRollupDAO;
+import com.focusmate.util.Config;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills session_daily_rollup from existing sessions when it is still empty,
+ * or rebuilds it from scratch when FOCUSMATE_ROLLUP_REBUILD=true.
+ */
+@Component
+@Order(2)
+public class RollupBackfillJob implements ApplicationRunner {
+    private final DailyRollupDAO rollupDAO = new DailyRollupDAO();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            boolean force = Config.getBoolean("FOCUSMATE_ROLLUP_REBUILD", false);
+            if (force || rollupDAO.isEmpty()) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Daily rollup backfill skipped: " + e.getMessage());
+        }
+    }
+
+    private void rebuild() throws Exception {
+        long start = System.currentTimeMillis();
+        int rows = rollupDAO.rebuildAll();
+        System.out.println("✅ Daily rollup rebuilt: " + rows + " rows in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new RollupBackfillJob().rebuild();
+    }
+}
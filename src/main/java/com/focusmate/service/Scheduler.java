@@ -1,69 +1,92 @@
 package com.focusmate.service;
 
 import com.focusmate.dao.TaskDAO;
+import com.focusmate.metrics.LatencyHistogram;
+import com.focusmate.metrics.Metrics;
 import com.focusmate.model.Task;
+import com.focusmate.model.TaskColumns;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 public class Scheduler {
+    private static final LatencyHistogram SORTED = Metrics.scheduler("sorted");
+    private static final LatencyHistogram SORTED_ALL = Metrics.scheduler("sortedAllUsers");
+    private static final LatencyHistogram RANK = Metrics.scheduler("rank");
+
     private final TaskDAO dao;
     private final double w1 = 2.0; // priority weight
     private final double w2 = 1.0; // deadline urgency weight
     private final double w3 = 1.5; // target gap weight
+    private final ScoringEngine engine = new ScoringEngine(w1, w2, w3);
 
     public Scheduler(TaskDAO dao) {
         this.dao = dao;
     }
 
     public List<Task> sorted(int userId) throws Exception {
-        List<Task> tasks = dao.listAll(userId);
-        LocalDate today = LocalDate.now();
-        List<Scored> scoredList = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            return rank(dao.listAll(userId));
+        } finally {
+            SORTED.recordSince(start);
+        }
+    }
 
-        for (Task t : tasks) {
-            int actual = dao.getActualMinutes(t.id, userId);
-            int gap = Math.max(0, t.targetMinutes - actual);
-            double urgency = 0.0;
-            if (t.dueDate != null) {
-                long days = Math.max(1, ChronoUnit.DAYS.between(today, t.dueDate));
-                urgency = 1.0 / days;
-            }
-            double score = w1 * t.priority + w2 * urgency + w3 * (gap / 60.0);
-            scoredList.add(new Scored(t, score));
+    /** Every user's tasks in one ranking; see {@link #rankAll} for per-user results. */
+    public List<Task> sorted() throws Exception {
+        return rankAll().tasks();
+    }
+
+    public ScoringEngine.Ranking rankAll() throws Exception {
+        long start = System.nanoTime();
+        try {
+            TaskColumns tasks = dao.listAllColumns();
+            return engine.rank(tasks, LocalDate.now());
+        } finally {
+            SORTED_ALL.recordSince(start);
         }
+    }
 
-        scoredList.sort((a, b) -> Double.compare(b.score, a.score));
+    /** Orders tasks by score using the actual minutes each task carries. */
+    public List<Task> rank(List<Task> tasks) {
+        return rankBy(tasks, t -> t.actualMinutes);
+    }
 
-        List<Task> sortedTasks = new ArrayList<>();
-        for (Scored s : scoredList) sortedTasks.add(s.task);
-        return sortedTasks;
+    /** Orders tasks by score using already-loaded actual minutes keyed by task id. */
+    public List<Task> rank(List<Task> tasks, Map<Integer, Integer> actualMinutes) {
+        return rankBy(tasks, t -> actualMinutes.getOrDefault(t.id, 0));
     }
 
-    public List<Task> sorted() throws Exception {
-        List<Task> tasks = dao.listAll();
+    private List<Task> rankBy(List<Task> tasks, ToIntFunction<Task> actualMinutes) {
+        long start = System.nanoTime();
         LocalDate today = LocalDate.now();
-        List<Scored> scoredList = new ArrayList<>();
+        List<Scored> scoredList = new ArrayList<>(tasks.size());
 
         for (Task t : tasks) {
-            int actual = dao.getActualMinutes(t.id, t.userId != null ? t.userId : 0);
-            int gap = Math.max(0, t.targetMinutes - actual);
-            double urgency = 0.0;
-            if (t.dueDate != null) {
-                long days = Math.max(1, ChronoUnit.DAYS.between(today, t.dueDate));
-                urgency = 1.0 / days;
-            }
-            double score = w1 * t.priority + w2 * urgency + w3 * (gap / 60.0);
-            scoredList.add(new Scored(t, score));
+            int actual = actualMinutes.applyAsInt(t);
+            scoredList.add(new Scored(t, score(t, actual, today)));
         }
 
         scoredList.sort((a, b) -> Double.compare(b.score, a.score));
 
-        List<Task> sortedTasks = new ArrayList<>();
+        List<Task> sortedTasks = new ArrayList<>(scoredList.size());
         for (Scored s : scoredList) sortedTasks.add(s.task);
+        RANK.recordSince(start);
         return sortedTasks;
     }
 
+    double score(Task t, int actual, LocalDate today) {
+        int gap = Math.max(0, t.targetMinutes - actual);
+        double urgency = 0.0;
+        if (t.dueDate != null) {
+            long days = Math.max(1, ChronoUnit.DAYS.between(today, t.dueDate));
+            urgency = 1.0 / days;
+        }
+        return w1 * t.priority + w2 * urgency + w3 * (gap / 60.0);
+    }
+
     private static class Scored {
         Task task;
         double score;
@@ -73,4 +96,4 @@ public class Scheduler {
             score = s;
         }
     }
-}
\ No newline at end of file
+}
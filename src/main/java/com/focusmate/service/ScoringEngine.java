@@ -0,0 +1,240 @@
+package com.focusmate.service;
+
+import com.focusmate.model.Task;
+import com.focusmate.model.TaskColumns;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ranks every task in a {@link TaskColumns} table without a wrapper object
+ * per task. Scores come from one pass over the primitive columns, split into
+ * ranges on a fork-join pool. Scores repeat heavily (small integer
+ * priorities, whole-day deadlines, quarter-hour targets), so each one is
+ * replaced by its rank among the distinct scores and the rows are ordered
+ * with a stable counting sort on that rank, in O(n + distinct) and without
+ * comparing doubles. A second stable pass buckets that order by user, which
+ * gives every user's own ranking as well. The result is exactly
+ * {@link Scheduler#rank}'s order: score descending, load order among equal
+ * scores.
+ */
+public class ScoringEngine {
+    /** Ranges below this are scored on the calling thread rather than forked. */
+    private static final int SPLIT_ROWS = 16_384;
+    /** Ranks fetched together when {@link Ranking#task} finds one not yet built, for callers walking the order. */
+    private static final int READ_AHEAD = 64;
+
+    private final double priorityWeight;
+    private final double urgencyWeight;
+    private final double gapWeight;
+    private final ForkJoinPool pool;
+
+    public ScoringEngine(double priorityWeight, double urgencyWeight, double gapWeight) {
+        this(priorityWeight, urgencyWeight, gapWeight, ForkJoinPool.commonPool());
+    }
+
+    public ScoringEngine(double priorityWeight, double urgencyWeight, double gapWeight, ForkJoinPool pool) {
+        this.priorityWeight = priorityWeight;
+        this.urgencyWeight = urgencyWeight;
+        this.gapWeight = gapWeight;
+        this.pool = pool;
+    }
+
+    public Ranking rank(TaskColumns tasks, LocalDate today) {
+        int n = tasks.size();
+        double[] scores = new double[n];
+        Ranking ranking = new Ranking(tasks, scores);
+        if (n == 0) return ranking;
+        pool.invoke(new ScoreRange(priorityWeight, urgencyWeight, gapWeight, tasks, (int) today.toEpochDay(), scores, 0, n));
+
+        // Bucket 0 is the highest distinct score.
+        DenseIds distinctScores = new DenseIds();
+        int[] scoreBucket = new int[n];
+        for (int i = 0; i < n; i++) scoreBucket[i] = distinctScores.id(Double.doubleToLongBits(scores[i]));
+        int distinct = distinctScores.count;
+        double[] ascending = new double[distinct];
+        for (int id = 0; id < distinct; id++) ascending[id] = Double.longBitsToDouble(distinctScores.key(id));
+        Arrays.sort(ascending);
+        int[] rankOf = new int[distinct];
+        for (int k = 0; k < distinct; k++) rankOf[distinctScores.id(Double.doubleToLongBits(ascending[k]))] = distinct - 1 - k;
+        for (int i = 0; i < n; i++) scoreBucket[i] = rankOf[scoreBucket[i]];
+
+        // Bucket u is the u-th smallest user id, so a user's slice can be found by binary search.
+        DenseIds distinctUsers = new DenseIds();
+        int[] userIds = tasks.userIds();
+        int[] userBucket = new int[n];
+        for (int i = 0; i < n; i++) userBucket[i] = distinctUsers.id(userIds[i]);
+        int[] users = new int[distinctUsers.count];
+        for (int id = 0; id < users.length; id++) users[id] = (int) distinctUsers.key(id);
+        Arrays.sort(users);
+        int[] userRank = new int[users.length];
+        for (int k = 0; k < users.length; k++) userRank[distinctUsers.id(users[k])] = k;
+        for (int i = 0; i < n; i++) userBucket[i] = userRank[userBucket[i]];
+
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) rows[i] = i;
+        ranking.order = bucketSort(rows, scoreBucket, new int[distinct + 1]);
+        ranking.segStart = new int[users.length + 1];
+        ranking.byUser = bucketSort(ranking.order, userBucket, ranking.segStart);
+        ranking.segUser = users;
+        return ranking;
+    }
+
+    /**
+     * Stable counting sort: {@code rows} reordered by {@code bucketOf[row]},
+     * keeping their relative order within a bucket. {@code starts} must have
+     * one slot per bucket plus one and comes back holding where each begins.
+     */
+    private static int[] bucketSort(int[] rows, int[] bucketOf, int[] starts) {
+        int buckets = starts.length - 1;
+        for (int row : rows) starts[bucketOf[row] + 1]++;
+        for (int b = 0; b < buckets; b++) starts[b + 1] += starts[b];
+        int[] next = Arrays.copyOf(starts, buckets);
+        int[] sorted = new int[rows.length];
+        for (int row : rows) sorted[next[bucketOf[row]]++] = row;
+        return sorted;
+    }
+
+    /**
+     * Tasks in rank order, plus each user's own ranking; nothing is copied out
+     * of the columns, and Task objects are only built for the ranks read.
+     */
+    public static final class Ranking {
+        private final TaskColumns tasks;
+        private final double[] scores;
+        private int[] order = new int[0];
+        private int[] byUser = new int[0];
+        private int[] segStart = {0};
+        private int[] segUser = new int[0];
+
+        private Ranking(TaskColumns tasks, double[] scores) {
+            this.tasks = tasks;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return order.length;
+        }
+
+        /** Built on first use; null if the task was deleted after the ranking was loaded. */
+        public Task task(int rank) throws Exception {
+            tasks.fetch(order, rank, Math.min(order.length, rank + READ_AHEAD));
+            return tasks.task(order[rank]);
+        }
+
+        public double score(int rank) {
+            return scores[order[rank]];
+        }
+
+        /** All tasks, best first. */
+        public List<Task> tasks() throws Exception {
+            return collect(order, 0, order.length);
+        }
+
+        /** One user's tasks, best first; empty if the user has none. */
+        public List<Task> forUser(int userId) throws Exception {
+            int seg = Arrays.binarySearch(segUser, userId);
+            if (seg < 0) return new ArrayList<>();
+            return collect(byUser, segStart[seg], segStart[seg + 1]);
+        }
+
+        /** Users with at least one task, ascending. */
+        public int[] users() {
+            return segUser.clone();
+        }
+
+        private List<Task> collect(int[] rows, int from, int to) throws Exception {
+            return tasks.tasks(rows, from, to);
+        }
+    }
+
+    /** Open-addressing table from a long key to a dense id, in first-seen order. */
+    private static final class DenseIds {
+        int count;
+        private long[] keys = new long[256];
+        private long[] table = new long[1_024];
+        private int[] ids = new int[1_024]; // id + 1, 0 when the slot is empty
+
+        int id(long key) {
+            int slot = slot(key);
+            if (ids[slot] != 0) return ids[slot] - 1;
+            if (count == keys.length) keys = Arrays.copyOf(keys, count * 2);
+            keys[count] = key;
+            table[slot] = key;
+            ids[slot] = ++count;
+            if (count * 2 > table.length) grow();
+            return count - 1;
+        }
+
+        long key(int id) {
+            return keys[id];
+        }
+
+        private int slot(long key) {
+            int mask = table.length - 1;
+            int slot = (int) ((key * 0x9E37_79B9_7F4A_7C15L) >>> 40) & mask;
+            while (ids[slot] != 0 && table[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void grow() {
+            table = new long[table.length * 2];
+            ids = new int[table.length];
+            for (int id = 0; id < count; id++) {
+                int slot = slot(keys[id]);
+                table[slot] = keys[id];
+                ids[slot] = id + 1;
+            }
+        }
+    }
+
+    /** Static so a task does not drag the engine along; never actually serialized. */
+    private static final class ScoreRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double priorityWeight;
+        private final double urgencyWeight;
+        private final double gapWeight;
+        private final transient TaskColumns tasks;
+        private final int today;
+        private final double[] scores;
+        private final int from;
+        private final int to;
+
+        ScoreRange(double priorityWeight, double urgencyWeight, double gapWeight,
+                   TaskColumns tasks, int today, double[] scores, int from, int to) {
+            this.priorityWeight = priorityWeight;
+            this.urgencyWeight = urgencyWeight;
+            this.gapWeight = gapWeight;
+            this.tasks = tasks;
+            this.today = today;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_ROWS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ScoreRange(priorityWeight, urgencyWeight, gapWeight, tasks, today, scores, from, mid),
+                        new ScoreRange(priorityWeight, urgencyWeight, gapWeight, tasks, today, scores, mid, to));
+                return;
+            }
+            int[] priority = tasks.priorities();
+            int[] due = tasks.dueEpochDays();
+            int[] target = tasks.targetMinutes();
+            int[] actual = tasks.actualMinutes();
+            // Same arithmetic, in the same order, as Scheduler.score, so the doubles are bit-identical.
+            for (int i = from; i < to; i++) {
+                int gap = Math.max(0, target[i] - actual[i]);
+                double urgency = due[i] == TaskColumns.NONE ? 0.0 : 1.0 / Math.max(1, due[i] - today);
+                scores[i] = priorityWeight * priority[i] + urgencyWeight * urgency + gapWeight * (gap / 60.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.SessionAggregateDAO;
+import com.focusmate.dao.SessionDAO;
+import com.focusmate.db.RowWriter;
+import com.focusmate.model.Session;
+import com.focusmate.util.Config;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the sessions table to the last FOCUSMATE_TIERING_HOT_DAYS days.
+ * Older sessions are folded into session_day_aggregates (one row per user,
+ * task and day), optionally written to a gzipped NDJSON archive first, and
+ * deleted in id windows of FOCUSMATE_TIERING_CHUNK_IDS, one short
+ * transaction each, pausing between windows to leave room for live traffic.
+ *
+ * <p>Nothing that reports totals reads the raw rows alone: the daily rollup
+ * is maintained on insert and rebuilt from both tiers, and task counters are
+ * reconciled against both, so analytics do not change when sessions move.
+ * Listings and exports of individual sessions cover the hot tier only; the
+ * archives hold the rest. Off unless FOCUSMATE_TIERING_ENABLED=true.
+ * Instances may run it at the same time: a window's rows are moved under row
+ * locks, so whichever instance gets there second finds nothing left to move.
+ */
+@Component
+@Order(4)
+public class SessionTiering implements ApplicationRunner {
+    private static final DateTimeFormatter ARCHIVE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private static final LongAdder runs = new LongAdder();
+    private static final LongAdder sessionsMoved = new LongAdder();
+    private static volatile Report last;
+
+    private final SessionDAO sessionDAO = new SessionDAO();
+    private final int hotDays = Config.getInt("FOCUSMATE_TIERING_HOT_DAYS", 90);
+    private final int chunkIds = Math.max(1, Config.getInt("FOCUSMATE_TIERING_CHUNK_IDS", 5_000));
+    private final long pauseMs = Config.getLong("FOCUSMATE_TIERING_PAUSE_MS", 10);
+    private final boolean archive = Config.getBoolean("FOCUSMATE_TIERING_ARCHIVE", true);
+    private final Path archiveDir = Paths.get(Config.get("FOCUSMATE_TIERING_ARCHIVE_DIR", "data/archive"));
+
+    public static class Report {
+        public String cutoff;
+        public String finishedAt;
+        public long millis;
+        public int chunks;
+        public long moved;
+        public String archive;
+        public String skipped;
+        public String error;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!Config.getBoolean("FOCUSMATE_TIERING_ENABLED", false)) return;
+        long interval = Config.getLong("FOCUSMATE_TIERING_INTERVAL_MS", 86_400_000);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "focusmate-session-tiering");
+            t.setDaemon(true);
+            return t;
+        });
+        // A minute's grace lets startup traffic and caches settle before the first pass.
+        executor.scheduleWithFixedDelay(this::runQuietly, 60_000, Math.max(60_000, interval), TimeUnit.MILLISECONDS);
+    }
+
+    /** One pass over the whole table; returns what it moved, or why it did nothing. */
+    public Report compact() throws Exception {
+        long start = System.currentTimeMillis();
+        Report report = new Report();
+        LocalDateTime cutoff = LocalDate.now().minusDays(hotDays).atStartOfDay();
+        report.cutoff = cutoff.toString();
+        if (hotDays <= 0) {
+            report.skipped = "FOCUSMATE_TIERING_HOT_DAYS must be positive";
+        } else {
+            moveColdSessions(cutoff, report);
+        }
+        report.millis = System.currentTimeMillis() - start;
+        report.finishedAt = LocalDateTime.now().toString();
+        runs.increment();
+        sessionsMoved.add(report.moved);
+        last = report;
+        return report;
+    }
+
+    private void moveColdSessions(LocalDateTime cutoff, Report report) throws Exception {
+        int[] bounds = sessionDAO.idBounds();
+        if (bounds == null) return;
+        // The newest id is left out so the last window never reaches past the end of the table.
+        int end = bounds[1];
+        Archive sink = archive ? new Archive(archiveDir) : null;
+        try {
+            for (int from = bounds[0]; from < end; from += chunkIds) {
+                int moved = sessionDAO.compact(from, Math.min(end, from + chunkIds), cutoff, sink);
+                if (moved == 0) continue;
+                report.chunks++;
+                report.moved += moved;
+                if (pauseMs > 0) Thread.sleep(pauseMs);
+            }
+        } finally {
+            if (sink != null) {
+                sink.close();
+                if (sink.sessions == 0) Files.deleteIfExists(sink.path);
+                else report.archive = sink.path.toString();
+            }
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            Report report = compact();
+            if (report.moved > 0) {
+                System.out.println("✅ Moved " + report.moved + " sessions before " + report.cutoff
+                        + " to daily aggregates in " + report.millis + "ms"
+                        + (report.archive != null ? " (archived to " + report.archive + ")" : ""));
+            }
+        } catch (Exception e) {
+            Report failed = new Report();
+            failed.finishedAt = LocalDateTime.now().toString();
+            failed.error = e.getMessage();
+            last = failed;
+            System.err.println("⚠️ Session tiering failed: " + e.getMessage());
+        }
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", Config.getBoolean("FOCUSMATE_TIERING_ENABLED", false));
+        result.put("hotDays", Config.getInt("FOCUSMATE_TIERING_HOT_DAYS", 90));
+        result.put("runs", runs.sum());
+        result.put("sessionsMoved", sessionsMoved.sum());
+        result.put("last", last);
+        try {
+            result.put("cold", new SessionAggregateDAO().totals());
+        } catch (Exception e) {
+            result.put("cold", null);
+        }
+        return result;
+    }
+
+    /**
+     * Gzipped NDJSON with the export's session fields plus userId. Each
+     * window's rows are flushed and fsynced before its delete commits; if the
+     * commit then fails, those rows stay in sessions and appear again in a
+     * later archive, so restores should de-duplicate on id.
+     */
+    private static final class Archive implements SessionDAO.ColdSink, Closeable {
+        final Path path;
+        final FileOutputStream file;
+        final GZIPOutputStream gzip;
+        final RowWriter writer;
+        long sessions;
+
+        Archive(Path dir) throws IOException {
+            Files.createDirectories(dir);
+            path = dir.resolve("sessions-" + LocalDateTime.now().format(ARCHIVE_STAMP) + ".ndjson.gz");
+            file = new FileOutputStream(path.toFile());
+            gzip = new GZIPOutputStream(file, 64 * 1024, true);
+            writer = RowWriter.of(RowWriter.Format.NDJSON,
+                    new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024));
+            writer.header("id", "userId", "taskId", "start", "end", "plannedMinutes", "actualMinutes", "stoppedManually");
+        }
+
+        @Override
+        public void accept(Session s) throws IOException {
+            writer.row(s.id, s.userId, s.taskId, s.start, s.end, s.plannedMinutes, s.actualMinutes, s.stoppedManually);
+            sessions++;
+        }
+
+        @Override
+        public void sync() throws IOException {
+            writer.flush();
+            file.getFD().sync();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+            gzip.finish();
+            file.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Report report = new SessionTiering().compact();
+        if (report.skipped != null) {
+            System.out.println("⚠️ Session tiering skipped: " + report.skipped);
+            return;
+        }
+        System.out.println("✅ Moved " + report.moved + " sessions before " + report.cutoff + " in " + report.chunks
+                + " chunks, " + report.millis + "ms" + (report.archive != null ? "; archive " + report.archive : ""));
+    }
+}
@@ -0,0 +1,276 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.RevokedTokenDAO;
+import com.focusmate.util.Config;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stateless login for FOCUSMATE_AUTH_MODE=token. A token reads
+ * {@code <keyId>.<userId>.<expiresAt>.<tokenId>.<signature>}, where the
+ * signature is HMAC-SHA256 over everything before it and expiresAt is in epoch
+ * seconds. Any instance holding the key can check a token on its own, so no
+ * HttpSession is created and requests need not stick to one node.
+ *
+ * <p>FOCUSMATE_AUTH_TOKEN_KEYS lists {@code keyId:base64} pairs. The first
+ * signs and the rest only verify. To rotate: add the new key last on every
+ * instance, then move it first, then drop the old one once
+ * FOCUSMATE_AUTH_TOKEN_TTL_MS has passed; at each step every instance can
+ * verify whatever any other instance signs. Logout
+ * records the token id in revoked_tokens. Every instance loads the unexpired
+ * rows once, then every FOCUSMATE_AUTH_REVOCATION_POLL_MS reads only the rows
+ * revoked since its last poll and forgets entries whose token has expired, so
+ * a revoked token stops working at once on the instance that revoked it and
+ * within one poll elsewhere.
+ */
+public class SessionTokens {
+    public static final String COOKIE = "FOCUSMATE_TOKEN";
+
+    // Declared before SHARED, whose constructor uses them.
+    private static final int MIN_KEY_BYTES = 32;
+    private static final long PURGE_INTERVAL_SECONDS = 3_600;
+    private static final int PURGE_BATCH = 1_000;
+    // revoked_at has whole seconds and rows commit a moment after it is set, so each poll re-reads
+    // a little before the newest row it has seen; merging a row twice is harmless.
+    private static final long POLL_OVERLAP_MS = 10_000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+    public static final SessionTokens SHARED = new SessionTokens(
+            "token".equalsIgnoreCase(Config.get("FOCUSMATE_AUTH_MODE", "session")),
+            Config.get("FOCUSMATE_AUTH_TOKEN_KEYS", ""),
+            Config.getLong("FOCUSMATE_AUTH_TOKEN_TTL_MS", 43_200_000),
+            Config.getLong("FOCUSMATE_AUTH_REVOCATION_POLL_MS", 5_000),
+            new RevokedTokenDAO());
+
+    public record Claims(String keyId, int userId, long expiresAt, String tokenId) {
+    }
+
+    private final boolean enabled;
+    private final Map<String, SecretKeySpec> keys = new LinkedHashMap<>();
+    private final String signingKeyId;
+    private final long ttlSeconds;
+    private final RevokedTokenDAO revokedTokenDAO;
+    // Token id -> expiry (epoch seconds): everything polled, plus what this instance revoked itself.
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    // Newest revoked_at the polls have read; null until the first full load.
+    private volatile Timestamp watermark;
+    private volatile long lastPollAt;
+    private volatile boolean pollFailing;
+    private volatile long lastPurgeAt;
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder unknownKey = new LongAdder();
+    private final LongAdder badSignature = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder revokedRejected = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder pollFailures = new LongAdder();
+    private final LongAdder purged = new LongAdder();
+
+    public SessionTokens(boolean enabled, String keySpec, long ttlMs, long pollMs, RevokedTokenDAO revokedTokenDAO) {
+        this.enabled = enabled;
+        this.ttlSeconds = Math.max(60, TimeUnit.MILLISECONDS.toSeconds(ttlMs));
+        this.revokedTokenDAO = revokedTokenDAO;
+        for (String entry : keySpec.split(",")) {
+            if (entry.isBlank()) continue;
+            int colon = entry.indexOf(':');
+            String id = colon > 0 ? entry.substring(0, colon).trim() : "";
+            byte[] secret;
+            try {
+                secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+            } catch (IllegalArgumentException e) {
+                secret = new byte[0];
+            }
+            if (!id.matches("[A-Za-z0-9_-]+") || secret.length < MIN_KEY_BYTES) {
+                if (enabled) System.err.println("⚠️ Ignoring token key '" + id + "': expected keyId:base64 with at least "
+                        + MIN_KEY_BYTES + " bytes");
+                continue;
+            }
+            keys.putIfAbsent(id, new SecretKeySpec(secret, "HmacSHA256"));
+        }
+        if (keys.isEmpty()) {
+            byte[] secret = new byte[MIN_KEY_BYTES];
+            RANDOM.nextBytes(secret);
+            keys.put("local", new SecretKeySpec(secret, "HmacSHA256"));
+            if (enabled) System.err.println("⚠️ FOCUSMATE_AUTH_TOKEN_KEYS not set: using a random key, so tokens will not "
+                    + "verify on other instances or after a restart");
+        }
+        this.signingKeyId = keys.keySet().iterator().next();
+        if (enabled) {
+            // Load the list before the first token is checked, so a restarted node does not accept revoked tokens.
+            pollQuietly();
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "focusmate-token-revocations");
+                t.setDaemon(true);
+                return t;
+            });
+            long delay = Math.max(100, pollMs);
+            executor.scheduleWithFixedDelay(this::pollQuietly, delay, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long ttlSeconds() {
+        return ttlSeconds;
+    }
+
+    public String issue(int userId) {
+        byte[] id = new byte[16];
+        RANDOM.nextBytes(id);
+        String payload = signingKeyId + "." + userId + "." + (Instant.now().getEpochSecond() + ttlSeconds)
+                + "." + B64.encodeToString(id);
+        issued.increment();
+        return payload + "." + B64.encodeToString(sign(keys.get(signingKeyId), payload));
+    }
+
+    /** The token from {@code Authorization: Bearer} or the cookie, or null. */
+    public static String fromRequest(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.regionMatches(true, 0, "Bearer ", 0, 7)) return header.substring(7).trim();
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) return cookie.getValue();
+        }
+        return null;
+    }
+
+    /** The request's claims if its token is well-formed, correctly signed, unexpired and not revoked. */
+    public Claims verify(HttpServletRequest request) {
+        String token = fromRequest(request);
+        return token != null ? verify(token) : null;
+    }
+
+    public Claims verify(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 5) {
+            malformed.increment();
+            return null;
+        }
+        SecretKeySpec key = keys.get(parts[0]);
+        if (key == null) {
+            unknownKey.increment();
+            return null;
+        }
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(parts[4]);
+        } catch (IllegalArgumentException e) {
+            malformed.increment();
+            return null;
+        }
+        String payload = token.substring(0, token.lastIndexOf('.'));
+        if (!MessageDigest.isEqual(signature, sign(key, payload))) {
+            badSignature.increment();
+            return null;
+        }
+        Claims claims;
+        try {
+            claims = new Claims(parts[0], Integer.parseInt(parts[1]), Long.parseLong(parts[2]), parts[3]);
+        } catch (NumberFormatException e) {
+            malformed.increment();
+            return null;
+        }
+        if (claims.expiresAt <= Instant.now().getEpochSecond()) {
+            expired.increment();
+            return null;
+        }
+        if (revoked.containsKey(claims.tokenId)) {
+            revokedRejected.increment();
+            return null;
+        }
+        verified.increment();
+        return claims;
+    }
+
+    /**
+     * Revokes the token here at once and records it for the other instances.
+     * Throws if it could not be recorded; the token then still works elsewhere.
+     */
+    public void revoke(Claims claims) throws Exception {
+        revoked.put(claims.tokenId, claims.expiresAt);
+        revokedTokenDAO.insert(claims.tokenId, claims.userId, claims.expiresAt);
+    }
+
+    private void pollQuietly() {
+        long now = Instant.now().getEpochSecond();
+        try {
+            Timestamp since = watermark != null ? new Timestamp(watermark.getTime() - POLL_OVERLAP_MS) : null;
+            watermark = revokedTokenDAO.forEachRevokedSince(since, now, revoked::put);
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            lastPollAt = now;
+            pollFailing = false;
+            polls.increment();
+            if (now - lastPurgeAt >= PURGE_INTERVAL_SECONDS) {
+                // In batches, so no single DELETE holds many row locks; repeat until the backlog is gone.
+                int deleted;
+                do {
+                    deleted = revokedTokenDAO.deleteExpired(now, PURGE_BATCH);
+                    purged.add(deleted);
+                } while (deleted == PURGE_BATCH);
+                lastPurgeAt = now;
+            }
+        } catch (Exception e) {
+            // Keep the last list; tokens revoked on other instances since then are not seen until MySQL is back.
+            if (!pollFailing) System.err.println("⚠️ Token revocation poll failed: " + e.getMessage());
+            pollFailing = true;
+            pollFailures.increment();
+        }
+    }
+
+    private static byte[] sign(SecretKeySpec key, String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to sign token", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> rejected = new LinkedHashMap<>();
+        rejected.put("malformed", malformed.sum());
+        rejected.put("unknownKey", unknownKey.sum());
+        rejected.put("badSignature", badSignature.sum());
+        rejected.put("expired", expired.sum());
+        rejected.put("revoked", revokedRejected.sum());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", enabled ? "token" : "session");
+        result.put("signingKey", signingKeyId);
+        result.put("verifyKeys", keys.keySet());
+        result.put("ttlSeconds", ttlSeconds);
+        result.put("issued", issued.sum());
+        result.put("verified", verified.sum());
+        result.put("rejected", rejected);
+        result.put("revokedActive", revoked.size());
+        result.put("polls", polls.sum());
+        result.put("pollFailures", pollFailures.sum());
+        result.put("lastPollAt", lastPollAt == 0 ? null : Instant.ofEpochSecond(lastPollAt).toString());
+        result.put("pollWatermark", watermark != null ? watermark.toInstant().toString() : null);
+        result.put("purgedRows", purged.sum());
+        return result;
+    }
+}
@@ -0,0 +1,246 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.SessionDAO;
+import com.focusmate.db.DB;
+import com.focusmate.db.DbHealth;
+import com.focusmate.model.Session;
+import com.focusmate.store.MemoryStore;
+import com.focusmate.util.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional write-behind path for POST /api/sessions. Sessions are queued in
+ * memory and a single writer thread stores them in JDBC batches, flushing when
+ * a batch fills up or the oldest queued session has waited flushInterval.
+ * A batch that MySQL rejects is retried one session at a time, so one bad
+ * row does not cost the others; only sessions that fail on their own, or
+ * while the database is down, are kept in MemoryStore.
+ */
+public class SessionWriteBehind {
+    public static final SessionWriteBehind SHARED = new SessionWriteBehind(
+            Config.getBoolean("FOCUSMATE_SESSION_WRITE_BEHIND", false),
+            Config.getInt("FOCUSMATE_SESSION_QUEUE_CAPACITY", 10_000),
+            Config.getInt("FOCUSMATE_SESSION_BATCH_SIZE", 500),
+            Config.getLong("FOCUSMATE_SESSION_FLUSH_INTERVAL_MS", 200),
+            Config.getLong("FOCUSMATE_SESSION_OFFER_TIMEOUT_MS", 50),
+            new SessionDAO());
+
+    private final boolean enabled;
+    private final BlockingQueue<Session> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMs;
+    private final SessionDAO sessionDAO;
+    private final Thread writer;
+    // Submitters hold the read side from the stopping check to the enqueue; close() sets stopping under the
+    // write side, so once it returns from that no session can land in a queue nobody drains any more.
+    private final ReentrantReadWriteLock submitLock = new ReentrantReadWriteLock();
+    private volatile boolean stopping;
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder backpressured = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder rowsSpilled = new LongAdder();
+    private final LongAdder batchesRetried = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+
+    public SessionWriteBehind(boolean enabled, int capacity, int batchSize, long flushIntervalMs,
+                              long offerTimeoutMs, SessionDAO sessionDAO) {
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.sessionDAO = sessionDAO;
+        if (enabled) {
+            writer = new Thread(this::runWriter, "focusmate-session-writer");
+            writer.setDaemon(true);
+            writer.start();
+            // Drained while the pool is still up, and before the fallback log that failures spill to is closed;
+            // whichever hook gets here second waits for the first.
+            DB.onShutdown(this::close);
+            MemoryStore.beforeClose(this::close);
+        } else {
+            writer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled && !stopping;
+    }
+
+    /**
+     * Queues a session for the writer. When the queue stays full for longer than
+     * the offer timeout the caller stores the session itself, which throttles
+     * producers to the rate the database can absorb. Once shutdown has begun
+     * the caller stores it directly as well.
+     */
+    public void submit(Session s) throws Exception {
+        submitLock.readLock().lock();
+        try {
+            if (!stopping && queue.offer(s, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                accepted.increment();
+                return;
+            }
+        } finally {
+            submitLock.readLock().unlock();
+        }
+        if (!stopping) backpressured.increment();
+        sessionDAO.insert(s);
+    }
+
+    /** Stops accepting work and writes out everything still queued; a second caller waits for the first. */
+    public void close() {
+        if (writer == null) return;
+        boolean first;
+        // Waits out submitters already offering (at most the offer timeout); later ones see stopping.
+        submitLock.writeLock().lock();
+        try {
+            first = !stopping;
+            stopping = true;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        try {
+            if (!first) {
+                closed.await(30, TimeUnit.SECONDS);
+                return;
+            }
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+                List<Session> rest = new ArrayList<>();
+                queue.drainTo(rest);
+                if (!rest.isEmpty()) flush(rest);
+            } finally {
+                closed.countDown();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<Session> batch = new ArrayList<>(batchSize);
+        while (!stopping) {
+            try {
+                Session first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+                    Session next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) flush(batch);
+    }
+
+    private void flush(List<Session> batch) {
+        long start = System.nanoTime();
+        List<Session> written = batch;
+        try {
+            sessionDAO.insertBatch(batch);
+        } catch (Exception ex) {
+            batchesRetried.increment();
+            written = retryOneByOne(batch, ex);
+        }
+        rowsWritten.add(written.size());
+        // The sessions moved task counters; cached lists read before they landed are now behind, and so is a
+        // priority heap loaded between submit (which already counted the minutes) and this commit.
+        Set<Integer> users = new HashSet<>();
+        for (Session s : written) if (s.taskId != null && s.userId != null) users.add(s.userId);
+        for (int userId : users) {
+            TaskListCache.SHARED.invalidate(userId);
+            PriorityIndex.SHARED.invalidate(userId);
+        }
+        long took = System.nanoTime() - start;
+        batches.increment();
+        flushNanos.add(took);
+        lastFlushNanos = took;
+        lastBatchSize = batch.size();
+        if (batch.size() > maxBatchSize) maxBatchSize = batch.size();
+        long max;
+        while (took > (max = maxFlushNanos.get())) {
+            if (maxFlushNanos.compareAndSet(max, took)) break;
+        }
+    }
+
+    /** Stores what it can of a rejected batch and spills the rest; returns the sessions that reached MySQL. */
+    private List<Session> retryOneByOne(List<Session> batch, Exception batchError) {
+        List<Session> written = new ArrayList<>(batch.size());
+        int spilled = 0;
+        String lastError = batchError.getMessage();
+        for (Session s : batch) {
+            if (DbHealth.SHARED.isAvailable()) {
+                try {
+                    sessionDAO.insert(s);
+                    written.add(s);
+                    continue;
+                } catch (Exception ex) {
+                    lastError = ex.getMessage();
+                }
+            }
+            MemoryStore.addSession(s);
+            spilled++;
+        }
+        if (spilled > 0) {
+            System.err.println("⚠️ " + spilled + " of a batch of " + batch.size() + " sessions could not be stored ("
+                    + lastError + "); keeping them in memory.");
+            rowsSpilled.add(spilled);
+        }
+        return written;
+    }
+
+    public Map<String, Object> stats() {
+        long batchCount = batches.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("queueDepth", queue.size());
+        result.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        result.put("accepted", accepted.sum());
+        result.put("backpressured", backpressured.sum());
+        result.put("batches", batchCount);
+        result.put("rowsWritten", rowsWritten.sum());
+        result.put("batchesRetriedOneByOne", batchesRetried.sum());
+        result.put("rowsSpilledToMemory", rowsSpilled.sum());
+        result.put("lastBatchSize", lastBatchSize);
+        result.put("maxBatchSize", maxBatchSize);
+        result.put("avgBatchSize", batchCount == 0 ? 0.0 : (rowsWritten.sum() + rowsSpilled.sum()) / (double) batchCount);
+        result.put("lastFlushMs", lastFlushNanos / 1_000_000.0);
+        result.put("avgFlushMs", batchCount == 0 ? 0.0 : flushNanos.sum() / (double) batchCount / 1_000_000.0);
+        result.put("maxFlushMs", maxFlushNanos.get() / 1_000_000.0);
+        return result;
+    }
+}
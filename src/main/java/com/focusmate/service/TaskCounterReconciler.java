@@ -0,0 +1,182 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.TaskDAO;
+import com.focusmate.db.SchemaInitializer;
+import com.focusmate.util.Config;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks tasks.actual_minutes and session_count against the raw sessions
+ * every FOCUSMATE_TASK_COUNTER_RECONCILE_INTERVAL_MS (0 turns it off),
+ * corrects any task that has drifted and reports what it found. Counters only
+ * drift if sessions are written or removed outside SessionDAO, so a run that
+ * finds something is logged as a warning.
+ *
+ * <p>When this start added the counters (V4), it first fills them for the
+ * existing tasks in ranges of FOCUSMATE_TASK_COUNTER_BACKFILL_CHUNK_IDS task
+ * ids, one short transaction each, so only the tasks of one range are locked
+ * at a time. Until it reaches a task, that task's counters read 0. If the
+ * process stops half way, the next reconciliation run fills in the rest.
+ */
+@Component
+@Order(3)
+public class TaskCounterReconciler implements ApplicationRunner {
+    private static final int EXAMPLES = 10;
+    private static final int COUNTERS_VERSION = 4;
+
+    private static final LongAdder runs = new LongAdder();
+    private static final LongAdder driftedTasks = new LongAdder();
+    private static volatile Report last;
+    private static volatile Backfill backfill;
+
+    private final TaskDAO taskDAO = new TaskDAO();
+
+    public static class Report {
+        public String finishedAt;
+        public long millis;
+        public int candidates;
+        public int drifted;
+        public long minutesDrift;
+        public long sessionsDrift;
+        public List<TaskDAO.CounterFix> examples = new ArrayList<>();
+        public String error;
+    }
+
+    public static class Backfill {
+        public String startedAt;
+        public String finishedAt;
+        public long millis;
+        public int chunks;
+        public int updated;
+        public int nextId;
+        public String error;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long interval = Config.getLong("FOCUSMATE_TASK_COUNTER_RECONCILE_INTERVAL_MS", 3_600_000);
+        boolean backfillNeeded = SchemaInitializer.appliedOnStartup(COUNTERS_VERSION);
+        if (interval <= 0 && !backfillNeeded) return;
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "focusmate-task-counters");
+            t.setDaemon(true);
+            return t;
+        });
+        // Same thread, so the first check never overlaps the backfill; it waits a full interval either way.
+        if (backfillNeeded) executor.execute(this::backfillQuietly);
+        if (interval > 0) executor.scheduleWithFixedDelay(this::reconcileQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        else executor.shutdown();
+    }
+
+    /** Recomputes the counters of every task, one range of ids per transaction. */
+    public Backfill backfill() throws Exception {
+        int chunkIds = Math.max(1, Config.getInt("FOCUSMATE_TASK_COUNTER_BACKFILL_CHUNK_IDS", 1000));
+        long pauseMs = Config.getLong("FOCUSMATE_TASK_COUNTER_BACKFILL_PAUSE_MS", 10);
+        long start = System.currentTimeMillis();
+        Backfill progress = new Backfill();
+        progress.startedAt = LocalDateTime.now().toString();
+        backfill = progress;
+        int[] bounds = taskDAO.idBounds();
+        if (bounds != null) {
+            long end = bounds[1] + 1L;
+            for (long from = bounds[0]; from < end; from += chunkIds) {
+                progress.nextId = (int) from;
+                progress.updated += taskDAO.recomputeCounters((int) from, (int) Math.min(end, from + chunkIds));
+                progress.chunks++;
+                if (pauseMs > 0) Thread.sleep(pauseMs);
+            }
+            progress.nextId = (int) end;
+        }
+        progress.millis = System.currentTimeMillis() - start;
+        progress.finishedAt = LocalDateTime.now().toString();
+        // Cached lists and priority heaps were built from the zero counters.
+        TaskListCache.SHARED.clear();
+        PriorityIndex.SHARED.clear();
+        return progress;
+    }
+
+    private void backfillQuietly() {
+        try {
+            Backfill done = backfill();
+            System.out.println("✅ Filled task counters for " + done.updated + " tasks in " + done.chunks
+                    + " chunks (" + done.millis + "ms)");
+        } catch (Exception e) {
+            Backfill failed = backfill != null ? backfill : new Backfill();
+            failed.error = e.getMessage();
+            System.err.println("⚠️ Task counter backfill stopped at task " + failed.nextId + " (the next reconciliation "
+                    + "run fills in the rest): " + e.getMessage());
+        }
+    }
+
+    /** Recomputes every task whose counters look off and returns what was corrected. */
+    public Report reconcile() throws Exception {
+        long start = System.currentTimeMillis();
+        Report report = new Report();
+        List<Integer> candidates = taskDAO.listCounterDrift();
+        report.candidates = candidates.size();
+        for (int taskId : candidates) {
+            TaskDAO.CounterFix fix = taskDAO.reconcileCounters(taskId);
+            // A candidate that agrees once locked was a session committing during the scan, not drift.
+            if (fix == null || !fix.drifted()) continue;
+            report.drifted++;
+            report.minutesDrift += Math.abs(fix.minutes() - fix.storedMinutes());
+            report.sessionsDrift += Math.abs(fix.sessions() - fix.storedSessions());
+            if (report.examples.size() < EXAMPLES) report.examples.add(fix);
+            TaskListCache.SHARED.invalidate(fix.userId());
+            PriorityIndex.SHARED.invalidate(fix.userId());
+        }
+        report.millis = System.currentTimeMillis() - start;
+        report.finishedAt = LocalDateTime.now().toString();
+        runs.increment();
+        driftedTasks.add(report.drifted);
+        last = report;
+        return report;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            Report report = reconcile();
+            if (report.drifted > 0) {
+                System.err.println("⚠️ Task counters drifted on " + report.drifted + " tasks (" + report.minutesDrift
+                        + " minutes, " + report.sessionsDrift + " sessions); corrected in " + report.millis + "ms");
+            }
+        } catch (Exception e) {
+            Report failed = new Report();
+            failed.finishedAt = LocalDateTime.now().toString();
+            failed.error = e.getMessage();
+            last = failed;
+            System.err.println("⚠️ Task counter reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("intervalMs", Config.getLong("FOCUSMATE_TASK_COUNTER_RECONCILE_INTERVAL_MS", 3_600_000));
+        result.put("runs", runs.sum());
+        result.put("driftedTasks", driftedTasks.sum());
+        result.put("last", last);
+        result.put("backfill", backfill);
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Report report = new TaskCounterReconciler().reconcile();
+        System.out.println("✅ Task counters checked in " + report.millis + "ms: " + report.candidates
+                + " candidates, " + report.drifted + " corrected (" + report.minutesDrift + " minutes, "
+                + report.sessionsDrift + " sessions)");
+        report.examples.forEach(fix -> System.out.println("   " + fix));
+    }
+}
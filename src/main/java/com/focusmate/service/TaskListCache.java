@@ -0,0 +1,155 @@
+package com.focusmate.service;
+
+import com.focusmate.model.Task;
+import com.focusmate.util.Config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-through cache of each user's task list, bounded by user count (LRU)
+ * and entry age. TaskController invalidates a user's entry on every task
+ * write, so the list/scheduled/completed/pending views can share one load.
+ */
+public class TaskListCache {
+    public static final TaskListCache SHARED = new TaskListCache(
+            Config.getBoolean("FOCUSMATE_TASK_CACHE_ENABLED", true),
+            Config.getInt("FOCUSMATE_TASK_CACHE_MAX_USERS", 1_000),
+            Config.getLong("FOCUSMATE_TASK_CACHE_TTL_MS", 30_000));
+
+    private static final int VERSION_STRIPES = 4096;
+
+    public interface Loader {
+        List<Task> load(int userId) throws Exception;
+    }
+
+    private record Entry(List<Task> tasks, long loadedAt) {
+    }
+
+    private final boolean enabled;
+    private final int maxUsers;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, Entry> entries;
+    // A user's stripe is bumped when that user's entry is invalidated, and the epoch on clear(); a load
+    // that overlapped either is returned but not cached, while writes by other users leave it alone.
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder discardedLoads = new LongAdder();
+
+    public TaskListCache(boolean enabled, int maxUsers, long ttlMs) {
+        this.enabled = enabled;
+        this.maxUsers = Math.max(1, maxUsers);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() <= TaskListCache.this.maxUsers) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the user's tasks, loading them on a miss. The list is shared
+     * between callers and must not be modified.
+     */
+    public List<Task> get(int userId, Loader loader) throws Exception {
+        if (!enabled) return loader.load(userId);
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = entries.get(userId);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.tasks;
+                }
+                entries.remove(userId);
+                expirations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        long epochBefore = epoch.get();
+        long versionBefore = versions.get(stripe(userId));
+        List<Task> tasks = List.copyOf(loader.load(userId));
+        lock.lock();
+        try {
+            if (epoch.get() == epochBefore && versions.get(stripe(userId)) == versionBefore) {
+                entries.put(userId, new Entry(tasks, now));
+            } else {
+                discardedLoads.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return tasks;
+    }
+
+    public void invalidate(int userId) {
+        if (!enabled) return;
+        versions.incrementAndGet(stripe(userId));
+        lock.lock();
+        try {
+            entries.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+
+    public void clear() {
+        epoch.incrementAndGet();
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("users", size);
+        result.put("maxUsers", maxUsers);
+        result.put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        result.put("hits", hitCount);
+        result.put("misses", misses.sum());
+        result.put("hitRatio", lookups == 0 ? 0.0 : hitCount / (double) lookups);
+        result.put("evictions", evictions.sum());
+        result.put("expirations", expirations.sum());
+        result.put("invalidations", invalidations.sum());
+        result.put("discardedLoads", discardedLoads.sum());
+        return result;
+    }
+
+    private static int stripe(int userId) {
+        return Math.floorMod(userId, VERSION_STRIPES);
+    }
+}
@@ -0,0 +1,207 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.UserDAO;
+import com.focusmate.model.User;
+import com.focusmate.util.Config;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resolves the caller of every controller: the user id stored in the HTTP
+ * session at login, or carried by a signed token when
+ * FOCUSMATE_AUTH_MODE=token (see {@link SessionTokens}), checked against a
+ * cache of immutable profiles (LRU by user, bounded in age). An id whose user
+ * no longer exists is refused with 401; that answer is cached too, so a stale
+ * cookie costs one lookup per TTL.
+ * If MySQL cannot be reached the id is trusted as before, so the in-memory
+ * fallback keeps working, and /me serves an expired profile if it has one.
+ */
+public class UserContext {
+    public static final String SESSION_KEY = "FOCUSMATE_USER_ID";
+
+    public static final UserContext SHARED = new UserContext(
+            new UserDAO(),
+            Config.getBoolean("FOCUSMATE_USER_CACHE_ENABLED", true),
+            Config.getInt("FOCUSMATE_USER_CACHE_MAX_USERS", 10_000),
+            Config.getLong("FOCUSMATE_USER_CACHE_TTL_MS", 300_000));
+
+    /** What /me returns; never carries the password hash. */
+    public record Profile(int id, String email, String name) {
+        static Profile of(User user) {
+            return new Profile(user.id, user.email, user.name);
+        }
+    }
+
+    // profile is null for an id with no user row.
+    private record Entry(Profile profile, long loadedAt) {
+    }
+
+    private final UserDAO userDAO;
+    private final boolean enabled;
+    private final int maxUsers;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, Entry> entries;
+    // Bumped on every invalidation; a load that overlapped one is not cached.
+    private final AtomicLong writes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unknownUsers = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public UserContext(UserDAO userDAO, boolean enabled, int maxUsers, long ttlMs) {
+        this.userDAO = userDAO;
+        this.enabled = enabled;
+        this.maxUsers = Math.max(1, maxUsers);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() <= UserContext.this.maxUsers) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * The id the request is logged in as, or null, without checking that the
+     * user exists. Never creates an HttpSession.
+     */
+    public Integer userId(HttpServletRequest request) {
+        if (SessionTokens.SHARED.isEnabled()) {
+            SessionTokens.Claims claims = SessionTokens.SHARED.verify(request);
+            return claims != null ? claims.userId() : null;
+        }
+        HttpSession session = request.getSession(false);
+        return session != null ? (Integer) session.getAttribute(SESSION_KEY) : null;
+    }
+
+    /** The logged-in user's id; 401 when the request has none or its user does not exist. */
+    public int requireUserId(HttpServletRequest request) {
+        Integer userId = userId(request);
+        if (userId == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Login required");
+        }
+        try {
+            if (profile(userId) == null) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid session");
+            }
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            // Database unavailable: keep serving the session's user from the fallback store.
+        }
+        return userId;
+    }
+
+    /**
+     * The user's profile, or null if there is no such user. Throws only when
+     * the database fails and no earlier copy of the profile is held.
+     */
+    public Profile profile(int userId) throws Exception {
+        if (!enabled) {
+            User user = userDAO.findById(userId);
+            return user != null ? Profile.of(user) : null;
+        }
+        long now = System.nanoTime();
+        Entry stale;
+        lock.lock();
+        try {
+            stale = entries.get(userId);
+            if (stale != null && now - stale.loadedAt < ttlNanos) {
+                hits.increment();
+                return stale.profile;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        if (stale != null) expirations.increment();
+        long writesBefore = writes.get();
+        User user;
+        try {
+            user = userDAO.findById(userId);
+        } catch (Exception e) {
+            loadFailures.increment();
+            if (stale == null || stale.profile == null) throw e;
+            staleServed.increment();
+            return stale.profile;
+        }
+        Profile profile = user != null ? Profile.of(user) : null;
+        if (profile == null) unknownUsers.increment();
+        lock.lock();
+        try {
+            if (writes.get() == writesBefore) entries.put(userId, new Entry(profile, now));
+        } finally {
+            lock.unlock();
+        }
+        return profile;
+    }
+
+    /** Caches a profile just read or written elsewhere (login, registration). */
+    public void remember(User user) {
+        if (!enabled || user.id == null) return;
+        lock.lock();
+        try {
+            entries.put(user.id, new Entry(Profile.of(user), System.nanoTime()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Call after anything changes a user's row, so the next request reloads it. */
+    public void invalidate(int userId) {
+        if (!enabled) return;
+        writes.incrementAndGet();
+        lock.lock();
+        try {
+            entries.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("users", size);
+        result.put("maxUsers", maxUsers);
+        result.put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        result.put("hits", hitCount);
+        result.put("misses", misses.sum());
+        result.put("hitRatio", lookups == 0 ? 0.0 : hitCount / (double) lookups);
+        result.put("unknownUsers", unknownUsers.sum());
+        result.put("loadFailures", loadFailures.sum());
+        result.put("staleServed", staleServed.sum());
+        result.put("evictions", evictions.sum());
+        result.put("expirations", expirations.sum());
+        result.put("invalidations", invalidations.sum());
+        return result;
+    }
+}
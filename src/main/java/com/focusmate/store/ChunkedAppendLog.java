@@ -0,0 +1,166 @@
+package com.focusmate.store;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Append-only sequence stored in fixed-size chunks. Writers claim a slot from
+ * an atomic tail counter, so an append never copies existing elements. Readers
+ * take the published length once and walk that prefix without locking;
+ * anything appended afterwards is simply not part of their view.
+ */
+public class ChunkedAppendLog<T> implements Iterable<T> {
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final int chunkSize;
+    private final int chunkMask;
+    private final Chunk head;
+    private volatile Chunk tail;
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    private static final class Chunk {
+        final long base;
+        final Chunk prev;
+        final AtomicReferenceArray<Object> items;
+        final AtomicReference<Chunk> next = new AtomicReference<>();
+
+        Chunk(long base, Chunk prev, int size) {
+            this.base = base;
+            this.prev = prev;
+            this.items = new AtomicReferenceArray<>(size);
+        }
+    }
+
+    public ChunkedAppendLog() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /** @param chunkSize elements per chunk; must be a power of two */
+    public ChunkedAppendLog(int chunkSize) {
+        if (chunkSize <= 0 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("chunkSize must be a power of two: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.chunkMask = chunkSize - 1;
+        this.head = new Chunk(0, null, chunkSize);
+        this.tail = head;
+    }
+
+    public void append(T item) {
+        Objects.requireNonNull(item, "item");
+        long index = reserved.getAndIncrement();
+        chunkFor(index).items.set((int) (index & chunkMask), item);
+        advancePublished();
+    }
+
+    /**
+     * Moves the published length over every filled slot. Whichever writer
+     * fills the first gap carries the prefix past the slots that later
+     * writers already filled, so nobody waits on a slower writer.
+     */
+    private void advancePublished() {
+        long p = published.get();
+        Chunk c = chunkFor(p);
+        while (p < reserved.get()) {
+            if (p >= c.base + chunkSize) c = chunkFor(p);
+            if (c.items.get((int) (p & chunkMask)) == null) return;
+            if (published.compareAndSet(p, p + 1)) {
+                p++;
+            } else {
+                p = published.get();
+                c = chunkFor(p);
+            }
+        }
+    }
+
+    private Chunk chunkFor(long index) {
+        Chunk c = tail;
+        while (c.base > index) c = c.prev;
+        while (index >= c.base + chunkSize) {
+            Chunk next = c.next.get();
+            if (next == null) {
+                Chunk fresh = new Chunk(c.base + chunkSize, c, chunkSize);
+                next = c.next.compareAndSet(null, fresh) ? fresh : c.next.get();
+            }
+            c = next;
+        }
+        if (c.base > tail.base) tail = c;
+        return c;
+    }
+
+    public int size() {
+        return (int) Math.min(published.get(), Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        return published.get() == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> action) {
+        long limit = published.get();
+        Chunk c = head;
+        for (long i = 0; i < limit; i++) {
+            int slot = (int) (i & chunkMask);
+            if (slot == 0 && i > 0) c = c.next.get();
+            action.accept((T) c.items.get(slot));
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PrefixIterator(published.get());
+    }
+
+    public Stream<T> stream() {
+        long limit = published.get();
+        Spliterator<T> split = Spliterators.spliterator(new PrefixIterator(limit), limit,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(split, false);
+    }
+
+    /** Copies the currently published prefix. */
+    public List<T> toList() {
+        List<T> result = new ArrayList<>(size());
+        forEach(result::add);
+        return result;
+    }
+
+    private final class PrefixIterator implements Iterator<T> {
+        private final long limit;
+        private long next;
+        private Chunk chunk = head;
+
+        PrefixIterator(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < limit;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (next >= limit) throw new NoSuchElementException();
+            int slot = (int) (next & chunkMask);
+            if (slot == 0 && next > 0) chunk = chunk.next.get();
+            next++;
+            return (T) chunk.items.get(slot);
+        }
+    }
+}
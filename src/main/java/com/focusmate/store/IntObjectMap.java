@@ -0,0 +1,123 @@
+package com.focusmate.store;
+
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Open-addressing hash map with primitive int keys (linear probing,
+ * backward-shift deletion). Not thread-safe; callers guard it.
+ */
+public class IntObjectMap<V> {
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public IntObjectMap() {
+        this(16);
+    }
+
+    public IntObjectMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 4 / 3) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) return (V) values[i];
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) throw new IllegalArgumentException("null values are not supported");
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (mask + 1) * 3 / 4) resize();
+        return null;
+    }
+
+    public V computeIfAbsent(int key, IntFunction<V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) break;
+        }
+        if (values[i] == null) return null;
+        V old = (V) values[i];
+        values[i] = null;
+        size--;
+        // Shift later entries of the probe run back so lookups never stop early.
+        int gap = i;
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            boolean stays = gap <= j ? (gap < home && home <= j) : (gap < home || home <= j);
+            if (stays) continue;
+            keys[gap] = keys[j];
+            values[gap] = values[j];
+            values[j] = null;
+            gap = j;
+        }
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<V> action) {
+        for (Object value : values) {
+            if (value != null) action.accept((V) value);
+        }
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int capacity = oldKeys.length * 2;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) j = (j + 1) & mask;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                size++;
+            }
+        }
+    }
+}
@@ -1,16 +1,454 @@
 package com.focusmate.store;
 
+import com.focusmate.model.Page;
+import com.focusmate.model.PageCursor;
 import com.focusmate.model.Task;
 import com.focusmate.model.Session;
+import com.focusmate.model.SessionColumns;
+import com.focusmate.util.Config;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
+/**
+ * In-memory fallback used while MySQL is unreachable. Reads go straight to the
+ * public collections; writes must go through the mutators so they also land
+ * in the on-disk mutation log that is replayed on startup, and keep the
+ * per-user and per-task indexes in step. Sessions are append-only chunked
+ * logs, so adding one never copies the existing history.
+ *
+ * <p>The log is checkpointed (rewritten as the live tasks and sessions) once it
+ * passes FOCUSMATE_FALLBACK_WAL_CHECKPOINT_BYTES and twice its size after the
+ * previous checkpoint, after an append has failed, and on clean shutdown, so
+ * it does not grow for the life of the deployment or replay dead history.
+ */
 public class MemoryStore {
     public static final AtomicInteger TASK_SEQ = new AtomicInteger(1);
     public static final Map<Integer, Task> TASKS = new ConcurrentHashMap<>();
-    public static final List<Session> SESSIONS = new CopyOnWriteArrayList<>();
+    public static final ChunkedAppendLog<Session> SESSIONS = new ChunkedAppendLog<>();
+
+    private static final byte TASK_PUT = 1;
+    private static final byte TASK_REMOVE = 2;
+    private static final byte SESSION_ADD = 3;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final int INDEX_CHUNK_SIZE = 64;
+    private static final long CHECKPOINT_RETRY_MS = 30_000;
+
+    private static final ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock();
+    private static final IntObjectMap<IntObjectMap<Task>> TASKS_BY_USER = new IntObjectMap<>();
+    private static final IntObjectMap<ChunkedAppendLog<Session>> SESSIONS_BY_USER = new IntObjectMap<>();
+    private static final IntObjectMap<SessionColumns> COLUMNS_BY_USER = new IntObjectMap<>();
+
+    // Mutators hold the read side from index to log append; a checkpoint holds the write side, so the
+    // snapshot it writes contains exactly the mutations already in the log it replaces.
+    private static final ReentrantReadWriteLock CHECKPOINT_LOCK = new ReentrantReadWriteLock();
+    private static final long CHECKPOINT_BYTES = Config.getLong("FOCUSMATE_FALLBACK_WAL_CHECKPOINT_BYTES", 64L << 20);
+    private static final LongAdder appendFailures = new LongAdder();
+    private static final LongAdder checkpointFailures = new LongAdder();
+    private static volatile String lastAppendError;
+    private static volatile String lastCheckpointError;
+    // False from a failed append until the next checkpoint writes the whole state again.
+    private static volatile boolean durable = true;
+    private static volatile long nextCheckpointAttemptAt;
+    private static final List<Runnable> BEFORE_CLOSE = new CopyOnWriteArrayList<>();
+
+    private static final MutationLog LOG = openLog();
+
+    public static void putTask(Task task) {
+        CHECKPOINT_LOCK.readLock().lock();
+        LOCK.writeLock().lock();
+        try {
+            indexTask(task);
+            append(TASK_PUT, encodeTask(task));
+        } finally {
+            LOCK.writeLock().unlock();
+            CHECKPOINT_LOCK.readLock().unlock();
+        }
+        checkpointIfDue();
+    }
+
+    /** Removes the task only if it belongs to the given user. */
+    public static Task removeTask(int id, int userId) {
+        Task existing;
+        CHECKPOINT_LOCK.readLock().lock();
+        LOCK.writeLock().lock();
+        try {
+            existing = TASKS.get(id);
+            if (existing == null || existing.userId == null || existing.userId != userId) return null;
+            unindexTask(id);
+            append(TASK_REMOVE, ByteBuffer.allocate(4).putInt(0, id));
+        } finally {
+            LOCK.writeLock().unlock();
+            CHECKPOINT_LOCK.readLock().unlock();
+        }
+        checkpointIfDue();
+        return existing;
+    }
+
+    public static void addSession(Session session) {
+        CHECKPOINT_LOCK.readLock().lock();
+        try {
+            indexSession(session);
+            append(SESSION_ADD, encodeSession(session));
+        } finally {
+            CHECKPOINT_LOCK.readLock().unlock();
+        }
+        checkpointIfDue();
+    }
+
+    public static Task findTask(int id, int userId) {
+        Task task = TASKS.get(id);
+        return task != null && task.userId != null && task.userId == userId ? task : null;
+    }
+
+    public static List<Task> tasksOf(int userId) {
+        LOCK.readLock().lock();
+        try {
+            IntObjectMap<Task> tasks = TASKS_BY_USER.get(userId);
+            List<Task> result = new ArrayList<>(tasks != null ? tasks.size() : 0);
+            if (tasks != null) tasks.forEachValue(result::add);
+            return result;
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fallback counterpart of TaskDAO.listPage. Tasks here have no creation
+     * time, but ids are handed out in order, so they page on id alone.
+     */
+    public static Page<Task> taskPage(int userId, String status, PageCursor after, int limit) {
+        List<Task> matching = tasksOf(userId).stream()
+                .filter(t -> status == null || status.equals(t.status))
+                .filter(t -> after == null || t.id < after.id())
+                .sorted(Comparator.comparingInt((Task t) -> t.id).reversed())
+                .limit(limit + 1L)
+                .toList();
+        if (matching.size() <= limit) return new Page<>(matching, null);
+        List<Task> items = matching.subList(0, limit);
+        Task last = items.get(limit - 1);
+        return new Page<>(items, new PageCursor(LocalDateTime.of(1970, 1, 1, 0, 0), last.id).encode());
+    }
+
+    /**
+     * Fallback counterpart of SessionDAO.listPage. Sessions logged here have no
+     * id, so the tie-breaker is the session's position in the user's log.
+     */
+    public static Page<Session> sessionPage(int userId, PageCursor after, int limit) {
+        List<Session> sessions = sessionsOf(userId);
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < sessions.size(); i++) {
+            if (after == null || isBefore(sessions.get(i).start, i, after)) positions.add(i);
+        }
+        positions.sort(Comparator.comparing((Integer i) -> sessions.get(i).start).thenComparing(i -> i).reversed());
+        List<Session> items = new ArrayList<>(Math.min(limit, positions.size()));
+        for (int i = 0; i < Math.min(limit, positions.size()); i++) items.add(sessions.get(positions.get(i)));
+        if (positions.size() <= limit) return new Page<>(items, null);
+        int last = positions.get(limit - 1);
+        return new Page<>(items, new PageCursor(sessions.get(last).start, last).encode());
+    }
+
+    private static boolean isBefore(LocalDateTime start, int position, PageCursor after) {
+        int cmp = start.compareTo(after.time());
+        return cmp < 0 || (cmp == 0 && position < after.id());
+    }
+
+    public static List<Session> sessionsOf(int userId) {
+        ChunkedAppendLog<Session> sessions = lookup(SESSIONS_BY_USER, userId);
+        return sessions != null ? sessions.toList() : new ArrayList<>();
+    }
+
+    /** Visits the user's sessions in insertion order without copying them. */
+    public static void forEachSessionOf(int userId, Consumer<Session> action) {
+        ChunkedAppendLog<Session> sessions = lookup(SESSIONS_BY_USER, userId);
+        if (sessions != null) sessions.forEach(action);
+    }
+
+    /** A fixed-size columnar view of the user's sessions for analytics loops. */
+    public static SessionColumns columnsOf(int userId) {
+        SessionColumns columns = lookup(COLUMNS_BY_USER, userId);
+        if (columns == null) return new SessionColumns(1);
+        synchronized (columns) {
+            return columns.snapshot();
+        }
+    }
+
+    private static void indexTask(Task task) {
+        Task previous = TASKS.put(task.id, task);
+        if (previous != null && previous.userId != null) {
+            IntObjectMap<Task> owned = TASKS_BY_USER.get(previous.userId);
+            if (owned != null) owned.remove(task.id);
+        }
+        if (task.userId != null) {
+            TASKS_BY_USER.computeIfAbsent(task.userId, k -> new IntObjectMap<>()).put(task.id, task);
+        }
+    }
+
+    private static void unindexTask(int id) {
+        Task removed = TASKS.remove(id);
+        if (removed != null && removed.userId != null) {
+            IntObjectMap<Task> owned = TASKS_BY_USER.get(removed.userId);
+            if (owned != null) {
+                owned.remove(id);
+                if (owned.isEmpty()) TASKS_BY_USER.remove(removed.userId);
+            }
+        }
+    }
+
+    private static void indexSession(Session session) {
+        SESSIONS.append(session);
+        if (session.userId != null) {
+            indexed(SESSIONS_BY_USER, session.userId, k -> new ChunkedAppendLog<>(INDEX_CHUNK_SIZE)).append(session);
+            SessionColumns columns = indexed(COLUMNS_BY_USER, session.userId, k -> new SessionColumns());
+            synchronized (columns) {
+                columns.add(session);
+            }
+        }
+    }
+
+    private static <V> V lookup(IntObjectMap<V> index, int key) {
+        LOCK.readLock().lock();
+        try {
+            return index.get(key);
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    /** The index maps only need the write lock the first time a user or task shows up. */
+    private static <V> V indexed(IntObjectMap<V> index, int key, IntFunction<V> factory) {
+        V value = lookup(index, key);
+        if (value != null) return value;
+        LOCK.writeLock().lock();
+        try {
+            return index.computeIfAbsent(key, factory);
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the task at shutdown before the mutation log is checkpointed and
+     * closed, e.g. to drain a queue whose failures are spilled into this store.
+     */
+    public static void beforeClose(Runnable task) {
+        BEFORE_CLOSE.add(task);
+    }
+
+    public static Map<String, Object> logStats() {
+        if (LOG == null) return Map.of("enabled", false);
+        Map<String, Object> result = new LinkedHashMap<>(LOG.stats());
+        result.put("durable", durable);
+        result.put("appendFailures", appendFailures.sum());
+        result.put("lastAppendError", lastAppendError);
+        result.put("checkpointThresholdBytes", CHECKPOINT_BYTES);
+        result.put("checkpointFailures", checkpointFailures.sum());
+        result.put("lastCheckpointError", lastCheckpointError);
+        return result;
+    }
+
+    private static void checkpointIfDue() {
+        if (LOG == null) return;
+        boolean due = durable
+                ? LOG.sizeBytes() >= Math.max(CHECKPOINT_BYTES, 2L * LOG.checkpointBytes())
+                : System.currentTimeMillis() >= nextCheckpointAttemptAt;
+        // One writer checkpoints; the others carry on appending to the current log.
+        if (due && CHECKPOINT_LOCK.writeLock().tryLock()) {
+            try {
+                checkpoint();
+            } finally {
+                CHECKPOINT_LOCK.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Rewrites the log as the current tasks and sessions. Returns false (and records why) if that failed. */
+    public static boolean checkpoint() {
+        if (LOG == null) return false;
+        CHECKPOINT_LOCK.writeLock().lock();
+        try {
+            LOG.checkpoint(sink -> {
+                for (Task t : TASKS.values()) sink.write(TASK_PUT, encodeTask(t));
+                for (Session s : SESSIONS) sink.write(SESSION_ADD, encodeSession(s));
+            });
+            durable = true;
+            return true;
+        } catch (Exception e) {
+            checkpointFailures.increment();
+            lastCheckpointError = e.getMessage();
+            nextCheckpointAttemptAt = System.currentTimeMillis() + CHECKPOINT_RETRY_MS;
+            System.err.println("⚠️ Fallback log checkpoint failed: " + e.getMessage());
+            return false;
+        } finally {
+            CHECKPOINT_LOCK.writeLock().unlock();
+        }
+    }
+
+    private static MutationLog openLog() {
+        if (!Config.getBoolean("FOCUSMATE_FALLBACK_WAL_ENABLED", true)) return null;
+        Path path = Path.of(Config.get("FOCUSMATE_FALLBACK_WAL_PATH", "data/memorystore.wal"));
+        MutationLog.FsyncPolicy fsync = MutationLog.FsyncPolicy.valueOf(
+                Config.get("FOCUSMATE_FALLBACK_WAL_FSYNC", "BATCH").toUpperCase());
+        long interval = Config.getLong("FOCUSMATE_FALLBACK_WAL_FSYNC_INTERVAL_MS", 1_000);
+        try {
+            MutationLog log = MutationLog.open(path, fsync, interval, MemoryStore::replay);
+            int maxId = TASKS.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            TASK_SEQ.set(Math.max(TASK_SEQ.get(), maxId + 1));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                // Whatever those tasks spill here must land before the log closes.
+                for (Runnable task : BEFORE_CLOSE) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException ex) {
+                        System.err.println("⚠️ Shutdown task failed: " + ex.getMessage());
+                    }
+                }
+                // Leaves a compact log for the next start to replay.
+                checkpoint();
+                try {
+                    log.close();
+                } catch (Exception ignored) {
+                }
+            }, "focusmate-wal-close"));
+            if (!TASKS.isEmpty() || !SESSIONS.isEmpty()) {
+                System.out.println("✅ Restored " + TASKS.size() + " tasks and " + SESSIONS.size()
+                        + " sessions from " + path);
+            }
+            return log;
+        } catch (Exception e) {
+            System.err.println("⚠️ Fallback log unavailable (in-memory data will not survive a restart): " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void append(byte type, ByteBuffer payload) {
+        if (LOG == null) return;
+        try {
+            LOG.append(type, payload);
+        } catch (Exception e) {
+            appendFailures.increment();
+            lastAppendError = e.getMessage();
+            // The change is in memory but not on disk; the next checkpoint writes it out with everything else.
+            if (durable) {
+                durable = false;
+                nextCheckpointAttemptAt = 0;
+                System.err.println("⚠️ Could not append to fallback log (writes are not durable until a checkpoint "
+                        + "succeeds): " + e.getMessage());
+            }
+        }
+    }
+
+    private static void replay(byte type, ByteBuffer in) {
+        switch (type) {
+            case TASK_PUT -> indexTask(decodeTask(in));
+            case TASK_REMOVE -> unindexTask(in.getInt());
+            case SESSION_ADD -> indexSession(decodeSession(in));
+            default -> System.err.println("⚠️ Skipping unknown fallback log record type " + type);
+        }
+    }
+
+    private static ByteBuffer encodeTask(Task t) {
+        byte[] title = bytes(t.title);
+        byte[] status = bytes(t.status);
+        ByteBuffer buf = ByteBuffer.allocate(4 * 4 + 8 + 8 + len(title) + len(status));
+        buf.putInt(t.id);
+        buf.putInt(t.userId != null ? t.userId : NULL_INT);
+        buf.putInt(t.priority);
+        buf.putInt(t.targetMinutes);
+        buf.putLong(t.dueDate != null ? t.dueDate.toEpochDay() : Long.MIN_VALUE);
+        putBytes(buf, title);
+        putBytes(buf, status);
+        return buf.flip();
+    }
+
+    private static Task decodeTask(ByteBuffer in) {
+        Task t = new Task();
+        t.id = in.getInt();
+        int userId = in.getInt();
+        t.userId = userId != NULL_INT ? userId : null;
+        t.priority = in.getInt();
+        t.targetMinutes = in.getInt();
+        long due = in.getLong();
+        t.dueDate = due != Long.MIN_VALUE ? LocalDate.ofEpochDay(due) : null;
+        t.title = getString(in);
+        t.status = getString(in);
+        return t;
+    }
+
+    private static ByteBuffer encodeSession(Session s) {
+        ByteBuffer buf = ByteBuffer.allocate(4 * 3 + (8 + 4) * 2 + 4 * 2 + 1);
+        buf.putInt(s.id != null ? s.id : NULL_INT);
+        buf.putInt(s.taskId != null ? s.taskId : NULL_INT);
+        buf.putInt(s.userId != null ? s.userId : NULL_INT);
+        putTime(buf, s.start);
+        putTime(buf, s.end);
+        buf.putInt(s.plannedMinutes);
+        buf.putInt(s.actualMinutes);
+        buf.put((byte) (s.stoppedManually ? 1 : 0));
+        return buf.flip();
+    }
+
+    private static Session decodeSession(ByteBuffer in) {
+        Session s = new Session();
+        int id = in.getInt();
+        int taskId = in.getInt();
+        int userId = in.getInt();
+        s.id = id != NULL_INT ? id : null;
+        s.taskId = taskId != NULL_INT ? taskId : null;
+        s.userId = userId != NULL_INT ? userId : null;
+        s.start = getTime(in);
+        s.end = getTime(in);
+        s.plannedMinutes = in.getInt();
+        s.actualMinutes = in.getInt();
+        s.stoppedManually = in.get() != 0;
+        return s;
+    }
+
+    private static void putTime(ByteBuffer buf, LocalDateTime time) {
+        buf.putLong(time != null ? time.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE);
+        buf.putInt(time != null ? time.getNano() : 0);
+    }
+
+    private static LocalDateTime getTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return seconds != Long.MIN_VALUE ? LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC) : null;
+    }
+
+    private static byte[] bytes(String s) {
+        return s != null ? s.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int len(byte[] b) {
+        return b != null ? b.length : 0;
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] b) {
+        buf.putInt(b != null ? b.length : -1);
+        if (b != null) buf.put(b);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,307 @@
+package com.focusmate.store;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped log of fallback-store mutations.
+ * Record layout: [int length][byte type][payload][int crc32c(type + payload)],
+ * where length covers type and payload. A zero length marks the end of the log.
+ *
+ * <p>{@link #checkpoint} rewrites the log as a snapshot of the live state: the
+ * records go to a sibling file that is fsynced and then renamed over the log,
+ * so a crash at any point leaves either the old log or the new one.
+ */
+public class MutationLog implements Closeable {
+    public enum FsyncPolicy { NONE, BATCH, ALWAYS }
+
+    public interface Replayer {
+        void apply(byte type, ByteBuffer payload);
+    }
+
+    public interface RecordSink {
+        void write(byte type, ByteBuffer payload) throws IOException;
+    }
+
+    /** Writes the records that reproduce the current state; the log's appends wait meanwhile. */
+    public interface Snapshot {
+        void writeTo(RecordSink sink) throws IOException;
+    }
+
+    private static final int MAGIC = 0x464D574C; // "FMWL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_OVERHEAD = 4 + 1 + 4;
+    private static final int INITIAL_BYTES = 1 << 20;
+
+    private final Path path;
+    private FileChannel channel;
+    private final FsyncPolicy fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private final ScheduledExecutorService flusher;
+    private volatile MappedByteBuffer map;
+    private int position;
+    private volatile boolean dirty;
+    private int replayed;
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder appendedBytes = new LongAdder();
+    private final LongAdder appendNanos = new LongAdder();
+    private final LongAdder forces = new LongAdder();
+    private final LongAdder checkpoints = new LongAdder();
+    private volatile long lastCheckpointAt;
+    private volatile long lastCheckpointMillis;
+    private volatile int checkpointBytes;
+
+    private MutationLog(Path path, FileChannel channel, FsyncPolicy fsync, long fsyncIntervalMs) {
+        this.path = path;
+        this.channel = channel;
+        this.fsync = fsync;
+        if (fsync == FsyncPolicy.BATCH) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "focusmate-wal-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::forceIfDirty, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /** Opens (or creates) the log and feeds every intact record to the replayer before returning. */
+    public static MutationLog open(Path path, FsyncPolicy fsync, long fsyncIntervalMs, Replayer replayer) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MutationLog log = new MutationLog(path, channel, fsync, fsyncIntervalMs);
+            log.load(replayer);
+            return log;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private void load(Replayer replayer) throws IOException {
+        long size = channel.size();
+        boolean fresh = size < HEADER_BYTES;
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_BYTES));
+        if (fresh) {
+            map.putInt(0, MAGIC);
+            map.putInt(4, VERSION);
+            map.force();
+            position = HEADER_BYTES;
+            return;
+        }
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Not a FocusMate mutation log: " + path);
+        }
+
+        int pos = HEADER_BYTES;
+        int capacity = map.capacity();
+        while (pos + RECORD_OVERHEAD <= capacity) {
+            int len = map.getInt(pos);
+            if (len <= 0 || (long) pos + 4 + len + 4 > capacity) break;
+            byte type = map.get(pos + 4);
+            ByteBuffer payload = map.slice(pos + 5, len - 1);
+            crc.reset();
+            crc.update(type);
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != map.getInt(pos + 4 + len)) break;
+            replayer.apply(type, payload.asReadOnlyBuffer());
+            replayed++;
+            pos += 4 + len + 4;
+        }
+        position = pos;
+
+        // A torn record at the tail would confuse the next replay once shorter
+        // records are written over it, so clear everything past the last good one.
+        if (pos + 4 <= capacity && map.getInt(pos) != 0) {
+            for (int i = pos; i < capacity; i++) map.put(i, (byte) 0);
+            map.force();
+        }
+    }
+
+    public void append(byte type, ByteBuffer payload) throws IOException {
+        int len = 1 + payload.remaining();
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            ensureCapacity(RECORD_OVERHEAD + payload.remaining());
+            MappedByteBuffer m = map;
+            int pos = position;
+            crc.reset();
+            crc.update(type);
+            crc.update(payload.duplicate());
+            m.put(pos + 4, type);
+            m.put(pos + 5, payload, payload.position(), payload.remaining());
+            m.putInt(pos + 4 + len, (int) crc.getValue());
+            m.putInt(pos, len);
+            position = pos + 4 + len + 4;
+            if (fsync == FsyncPolicy.ALWAYS) {
+                m.force(pos, 4 + len + 4);
+                forces.increment();
+            } else {
+                dirty = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        appends.increment();
+        appendedBytes.add(4 + len + 4);
+        appendNanos.add(System.nanoTime() - start);
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        if ((long) position + needed + 4 <= map.capacity()) return;
+        long required = (long) position + needed + 4;
+        if (required > Integer.MAX_VALUE) throw new IOException("Mutation log is full: " + path);
+        long target = Math.min(Math.max((long) map.capacity() * 2, required), Integer.MAX_VALUE);
+        map.force();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, target);
+    }
+
+    private void forceIfDirty() {
+        if (!dirty) return;
+        dirty = false;
+        try {
+            map.force();
+            forces.increment();
+        } catch (RuntimeException e) {
+            // A checkpoint swapped the file underneath; the new one was fsynced when it was written.
+        }
+    }
+
+    /** Bytes in use, header included. */
+    public int sizeBytes() {
+        lock.lock();
+        try {
+            return position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Size of the log right after the last checkpoint, or 0 if there has been none. */
+    public int checkpointBytes() {
+        return checkpointBytes;
+    }
+
+    /**
+     * Replaces the log with the snapshot's records. On failure the current log
+     * is left as it was and stays in use.
+     */
+    public void checkpoint(Snapshot snapshot) throws IOException {
+        long start = System.currentTimeMillis();
+        Path tmp = path.resolveSibling(path.getFileName() + ".checkpoint");
+        lock.lock();
+        try {
+            long written;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out), 64 * 1024))) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                CRC32C recordCrc = new CRC32C();
+                snapshot.writeTo((type, payload) -> {
+                    int len = 1 + payload.remaining();
+                    if ((long) data.size() + 4 + len + 4 + 4 > Integer.MAX_VALUE) {
+                        throw new IOException("Live state no longer fits in one mutation log: " + path);
+                    }
+                    recordCrc.reset();
+                    recordCrc.update(type);
+                    recordCrc.update(payload.duplicate());
+                    data.writeInt(len);
+                    data.writeByte(type);
+                    byte[] bytes = new byte[payload.remaining()];
+                    payload.duplicate().get(bytes);
+                    data.write(bytes);
+                    data.writeInt((int) recordCrc.getValue());
+                });
+                data.flush();
+                written = data.size();
+                out.force(true);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory();
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.min(Math.max(written * 2, INITIAL_BYTES), Integer.MAX_VALUE));
+            position = (int) written;
+            dirty = false;
+            checkpointBytes = position;
+        } finally {
+            lock.unlock();
+        }
+        checkpoints.increment();
+        lastCheckpointAt = System.currentTimeMillis();
+        lastCheckpointMillis = lastCheckpointAt - start;
+    }
+
+    // Makes the rename itself durable. Not every platform lets a directory be opened; there the rename
+    // is as durable as the filesystem makes it.
+    private void syncDirectory() {
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir == null) return;
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long count = appends.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", path.toString());
+        result.put("fsync", fsync.name());
+        result.put("replayedRecords", replayed);
+        result.put("appends", count);
+        result.put("appendedBytes", appendedBytes.sum());
+        result.put("avgAppendMicros", count == 0 ? 0.0 : appendNanos.sum() / (double) count / 1_000.0);
+        result.put("forces", forces.sum());
+        result.put("sizeBytes", sizeBytes());
+        result.put("checkpoints", checkpoints.sum());
+        result.put("lastCheckpointAt", lastCheckpointAt == 0 ? null : Instant.ofEpochMilli(lastCheckpointAt).toString());
+        result.put("lastCheckpointMillis", lastCheckpointMillis);
+        result.put("bytesAfterLastCheckpoint", checkpointBytes);
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) flusher.shutdownNow();
+        lock.lock();
+        try {
+            map.force();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.focusmate.util;
+
+public class Config {
+    public static String get(String name, String fallback) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) value = System.getenv(name);
+        return (value != null && !value.isBlank()) ? value.trim() : fallback;
+    }
+
+    public static int getInt(String name, int fallback) {
+        String value = get(name, null);
+        if (value == null) return fallback;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            System.err.println("⚠️ Ignoring invalid value for " + name + ": " + value);
+            return fallback;
+        }
+    }
+
+    public static long getLong(String name, long fallback) {
+        String value = get(name, null);
+        if (value == null) return fallback;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            System.err.println("⚠️ Ignoring invalid value for " + name + ": " + value);
+            return fallback;
+        }
+    }
+
+    public static boolean getBoolean(String name, boolean fallback) {
+        String value = get(name, null);
+        return value == null ? fallback : Boolean.parseBoolean(value);
+    }
+}
@@ -1,10 +1,73 @@
 package com.focusmate.util;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
 
+/**
+ * Password hashes are stored as {@code pbkdf2-sha256$<iterations>$<salt>$<key>}
+ * (base64 salt and key). Hashes written before that format are unsalted
+ * SHA-256 hex; they still verify, and {@link #needsRehash} reports them so a
+ * successful login can replace them.
+ */
 public class PasswordUtil {
-    public static String hash(String text) {
+    private static final String PBKDF2 = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Salted PBKDF2 with the given iteration count; 0 or less writes the legacy SHA-256 hex. */
+    public static String hash(String password, int iterations) {
+        if (iterations <= 0) return sha256Hex(password);
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PBKDF2 + "$" + iterations + "$" + b64.encodeToString(salt) + "$"
+                + b64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    public static boolean verify(String password, String stored) {
+        if (stored == null) return false;
+        String[] parts = stored.split("\\$");
+        if (parts.length == 4 && PBKDF2.equals(parts[0])) {
+            try {
+                int iterations = Integer.parseInt(parts[1]);
+                byte[] salt = Base64.getDecoder().decode(parts[2]);
+                byte[] expected = Base64.getDecoder().decode(parts[3]);
+                return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return MessageDigest.isEqual(stored.getBytes(StandardCharsets.US_ASCII),
+                sha256Hex(password).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * True when {@code stored} is not PBKDF2 at this iteration count. With
+     * iterations of 0 or less nothing needs rehashing: PBKDF2 hashes are never
+     * rewritten back to the legacy format.
+     */
+    public static boolean needsRehash(String stored, int iterations) {
+        if (iterations <= 0) return false;
+        return stored == null || !stored.startsWith(PBKDF2 + "$" + iterations + "$");
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to hash password", ex);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String sha256Hex(String text) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hashBytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
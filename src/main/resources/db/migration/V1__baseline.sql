@@ -1,4 +1,5 @@
--- Schema for FocusMate (manual DDL so Hibernate doesn't manage it)
+-- Tables as SchemaInitializer created them before versioned migrations. IF NOT EXISTS lets
+-- this run against a database that already has them, which then simply becomes version 1.
 CREATE TABLE IF NOT EXISTS users (
   id INT AUTO_INCREMENT PRIMARY KEY,
   email VARCHAR(255) NOT NULL UNIQUE,
@@ -23,8 +24,8 @@ CREATE TABLE IF NOT EXISTS sessions (
   id INT AUTO_INCREMENT PRIMARY KEY,
   task_id INT NULL,
   user_id INT NULL,
-  start_time TIMESTAMP NOT NULL,
-  end_time TIMESTAMP NOT NULL,
+  start_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  end_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   planned_minutes INT NOT NULL,
   actual_minutes INT NOT NULL,
   stopped_manually TINYINT(1) NOT NULL DEFAULT 0,
@@ -32,5 +33,21 @@ CREATE TABLE IF NOT EXISTS sessions (
   CONSTRAINT fk_sessions_task FOREIGN KEY (task_id) REFERENCES tasks(id) ON DELETE SET NULL
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
--- ALTER TABLE tasks ADD COLUMN IF NOT EXISTS user_id INT NULL AFTER status;
--- ALTER TABLE sessions ADD COLUMN IF NOT EXISTS user_id INT NULL AFTER task_id;
+CREATE TABLE IF NOT EXISTS presets (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  name VARCHAR(100) NOT NULL,
+  focus_min INT NOT NULL DEFAULT 25,
+  short_break_min INT NOT NULL DEFAULT 5,
+  long_break_min INT NOT NULL DEFAULT 15,
+  cycles_before_long INT NOT NULL DEFAULT 4
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Per-user daily totals maintained alongside every session insert
+CREATE TABLE IF NOT EXISTS session_daily_rollup (
+  user_id INT NOT NULL,
+  day DATE NOT NULL,
+  minutes INT NOT NULL DEFAULT 0,
+  session_count INT NOT NULL DEFAULT 0,
+  manual_stop_count INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (user_id, day)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,6 @@
+-- Every per-user listing filters on user_id and sorts by its time column (TaskDAO.listAll/listPage,
+-- SessionDAO.listAll/listPage). InnoDB appends the primary key to secondary indexes, so these also
+-- cover the (time, id) keyset seek without a filesort. They take over from the single-column
+-- index MySQL created for fk_tasks_user.
+CREATE INDEX idx_tasks_user_created ON tasks (user_id, created_at) ALGORITHM=INPLACE LOCK=NONE;
+CREATE INDEX idx_sessions_user_start ON sessions (user_id, start_time) ALGORITHM=INPLACE LOCK=NONE;
@@ -0,0 +1,3 @@
+-- TaskDAO.getActualMinutes and the owner join in getActualMinutesByTask look sessions up by
+-- (task_id, user_id). Replaces the task_id-only index MySQL created for fk_sessions_task.
+CREATE INDEX idx_sessions_task_user ON sessions (task_id, user_id) ALGORITHM=INPLACE LOCK=NONE;
@@ -0,0 +1,6 @@
+-- Minutes and sessions each task's owner has logged against it, maintained by SessionDAO in the
+-- session insert's own transaction so progress is a primary-key read instead of a SUM over sessions.
+-- Both adds are metadata-only. The counters of existing tasks are filled afterwards by
+-- TaskCounterReconciler in short task-id ranges, rather than by one UPDATE that locks every task.
+ALTER TABLE tasks ADD COLUMN actual_minutes INT NOT NULL DEFAULT 0, ALGORITHM=INSTANT;
+ALTER TABLE tasks ADD COLUMN session_count INT NOT NULL DEFAULT 0, ALGORITHM=INSTANT;
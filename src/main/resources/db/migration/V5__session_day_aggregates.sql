@@ -0,0 +1,13 @@
+-- Cold tier of the sessions table: sessions older than the hot horizon are folded into one row per
+-- user, task and day by SessionTiering and deleted from sessions. task_id 0 stands for sessions
+-- logged without a task. There is no foreign key, so a deleted task's history stays in the totals.
+CREATE TABLE IF NOT EXISTS session_day_aggregates (
+  user_id INT NOT NULL,
+  task_id INT NOT NULL DEFAULT 0,
+  day DATE NOT NULL,
+  minutes INT NOT NULL DEFAULT 0,
+  planned_minutes INT NOT NULL DEFAULT 0,
+  session_count INT NOT NULL DEFAULT 0,
+  manual_stop_count INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (user_id, task_id, day)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
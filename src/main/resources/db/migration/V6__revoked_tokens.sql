@@ -0,0 +1,10 @@
+-- Signed tokens revoked before they expire (logout in FOCUSMATE_AUTH_MODE=token). Every instance polls the
+-- unexpired rows into memory, so the table only needs to hold tokens that could still verify.
+-- expires_at is the token's own expiry in epoch seconds, copied so expired rows can be purged.
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+  token_id VARCHAR(32) NOT NULL PRIMARY KEY,
+  user_id INT NOT NULL,
+  expires_at BIGINT NOT NULL,
+  revoked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  INDEX idx_revoked_tokens_expires (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
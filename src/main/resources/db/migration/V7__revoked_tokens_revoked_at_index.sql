@@ -0,0 +1,2 @@
+-- SessionTokens polls only the revocations recorded since its last poll (revoked_at >= watermark).
+CREATE INDEX idx_revoked_tokens_revoked ON revoked_tokens (revoked_at) ALGORITHM=INPLACE LOCK=NONE;
@@ -0,0 +1,73 @@
+package com.focusmate.db;
+
+import com.focusmate.util.Config;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Migrates the scratch MySQL database named by FOCUSMATE_TEST_DB_URL and
+ * asserts that every {@link QueryPlanCheck#CHECKS} entry uses its index
+ * without a filesort. Skipped when no test database is configured.
+ */
+@EnabledIf("testDatabaseConfigured")
+class QueryPlanCheckTest {
+    private static Connection connection;
+
+    static boolean testDatabaseConfigured() {
+        return Config.get("FOCUSMATE_TEST_DB_URL", null) != null;
+    }
+
+    static List<QueryPlanCheck.Check> checks() {
+        return QueryPlanCheck.CHECKS;
+    }
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        connection = DriverManager.getConnection(Config.get("FOCUSMATE_TEST_DB_URL", null),
+                Config.get("FOCUSMATE_TEST_DB_USER", "root"), Config.get("FOCUSMATE_TEST_DB_PASSWORD", ""));
+        SchemaMigrator.Result result = new SchemaMigrator().migrate(connection);
+        assertEquals(List.of(), result.warnings);
+        seed();
+    }
+
+    @AfterAll
+    static void close() throws Exception {
+        if (connection != null) connection.close();
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("checks")
+    void usesItsIndexWithoutFilesort(QueryPlanCheck.Check check) throws Exception {
+        Map<String, Object> plan = QueryPlanCheck.check(connection, check);
+        assertEquals(Boolean.TRUE, plan.get("ok"), () -> check.query() + ": " + plan);
+    }
+
+    // A few users' rows, more sessions than tasks as in production, and fresh statistics, so the plans
+    // are not those of empty tables. Only the first run against a database adds them.
+    private static void seed() throws Exception {
+        try (Statement st = connection.createStatement()) {
+            int users = st.executeUpdate("INSERT IGNORE INTO users(email, name, password_hash) VALUES " +
+                    "('plan-a@test', 'A', 'x'), ('plan-b@test', 'B', 'x'), ('plan-c@test', 'C', 'x')");
+            if (users > 0) {
+                st.executeUpdate("INSERT INTO tasks(title, priority, target_minutes, user_id) " +
+                        "SELECT CONCAT('plan task ', u.id), 1, 60, u.id FROM users u WHERE u.email LIKE 'plan-%@test'");
+                st.executeUpdate("INSERT INTO sessions(task_id, user_id, planned_minutes, actual_minutes) " +
+                        "SELECT t.id, t.user_id, 25, n.minutes FROM tasks t JOIN users u ON u.id = t.user_id " +
+                        "JOIN (SELECT 5 AS minutes UNION ALL SELECT 10 UNION ALL SELECT 15 UNION ALL SELECT 25) n " +
+                        "WHERE u.email LIKE 'plan-%@test'");
+            }
+            st.execute("ANALYZE TABLE users, tasks, sessions, session_day_aggregates");
+        }
+    }
+}
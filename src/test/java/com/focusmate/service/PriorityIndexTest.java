@@ -0,0 +1,111 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.TaskDAO;
+import com.focusmate.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityIndexTest {
+
+    /** Serves fixed tasks; a load of {@code blockedUser} waits until the test lets it finish. */
+    private static class StubDAO extends TaskDAO {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile int blockedUser = -1;
+
+        @Override
+        public List<Task> listAll(int userId) throws Exception {
+            if (userId == blockedUser) {
+                loading.countDown();
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            }
+            return List.of(task(userId * 10 + 1, userId, 3), task(userId * 10 + 2, userId, 1));
+        }
+    }
+
+    private static Task task(int id, int userId, int priority) {
+        Task t = new Task();
+        t.id = id;
+        t.userId = userId;
+        t.title = "task " + id;
+        t.priority = priority;
+        t.targetMinutes = 60;
+        t.dueDate = LocalDate.now().plusDays(3);
+        t.status = "PENDING";
+        return t;
+    }
+
+    @Test
+    void topHandsOutCopiesThatLaterMinutesDoNotChange() throws Exception {
+        PriorityIndex index = new PriorityIndex(new StubDAO(), 10, 60_000);
+        Task first = index.top(1, 1).get(0);
+        assertEquals(0, first.actualMinutes);
+
+        index.minutesLogged(1, first.id, 25);
+        assertEquals(0, first.actualMinutes);
+        assertEquals(0, first.sessionCount);
+        Task again = index.top(1, 2).stream().filter(t -> t.id.equals(first.id)).findFirst().orElseThrow();
+        assertEquals(25, again.actualMinutes);
+        assertEquals(1, again.sessionCount);
+        assertNotSame(first, again);
+    }
+
+    @Test
+    void taskChangedKeepsItsOwnCopyOfTheCallersTask() throws Exception {
+        PriorityIndex index = new PriorityIndex(new StubDAO(), 10, 60_000);
+        index.top(1, 2);
+        Task created = task(13, 1, 5);
+        index.taskChanged(created);
+        index.minutesLogged(1, 13, 10);
+        assertEquals(0, created.actualMinutes);
+        assertEquals(10, index.top(1, 1).get(0).actualMinutes);
+    }
+
+    @Test
+    void writesByOtherUsersDoNotDiscardALoad() throws Exception {
+        StubDAO dao = new StubDAO();
+        dao.blockedUser = 1;
+        PriorityIndex index = new PriorityIndex(dao, 10, 60_000);
+        CompletableFuture<List<Task>> load = CompletableFuture.supplyAsync(() -> top(index, 1));
+        assertTrue(dao.loading.await(10, TimeUnit.SECONDS));
+        index.minutesLogged(2, 21, 5);
+        index.taskRemoved(3, 31);
+        dao.release.countDown();
+        assertEquals(2, load.get(10, TimeUnit.SECONDS).size());
+
+        index.top(1, 2);
+        assertEquals(1L, index.stats().get("loads"));
+        assertEquals(0L, index.stats().get("discardedLoads"));
+    }
+
+    @Test
+    void aWriteToTheSameUserDuringALoadDiscardsIt() throws Exception {
+        StubDAO dao = new StubDAO();
+        dao.blockedUser = 1;
+        PriorityIndex index = new PriorityIndex(dao, 10, 60_000);
+        CompletableFuture<List<Task>> load = CompletableFuture.supplyAsync(() -> top(index, 1));
+        assertTrue(dao.loading.await(10, TimeUnit.SECONDS));
+        index.minutesLogged(1, 11, 5);
+        dao.release.countDown();
+        load.get(10, TimeUnit.SECONDS);
+
+        index.top(1, 2);
+        assertEquals(2L, index.stats().get("loads"));
+        assertEquals(1L, index.stats().get("discardedLoads"));
+    }
+
+    private static List<Task> top(PriorityIndex index, int userId) {
+        try {
+            return index.top(userId, 2);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.focusmate.service;
+
+import com.focusmate.dao.SessionDAO;
+import com.focusmate.model.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionWriteBehindTest {
+    private static final int SUBMITTERS = 8;
+    private static final int PER_SUBMITTER = 5_000;
+
+    /** Records what reached the database instead of writing it. */
+    private static class RecordingDAO extends SessionDAO {
+        final ConcurrentHashMap<Integer, AtomicInteger> stored = new ConcurrentHashMap<>();
+
+        @Override
+        public void insert(Session s) {
+            stored.computeIfAbsent(s.actualMinutes, k -> new AtomicInteger()).incrementAndGet();
+        }
+
+        @Override
+        public void insertBatch(List<Session> sessions) throws Exception {
+            Thread.sleep(1);
+            for (Session s : sessions) insert(s);
+        }
+    }
+
+    /**
+     * Submitters keep going while close() runs and after it returns. Every
+     * session must reach the database exactly once, either through a batch or
+     * directly, and nothing may be left behind in the queue.
+     */
+    @Test
+    void sessionsSubmittedAroundCloseAreStoredExactlyOnce() throws Exception {
+        RecordingDAO dao = new RecordingDAO();
+        SessionWriteBehind writeBehind = new SessionWriteBehind(true, 64, 32, 5, 1, dao);
+        ExecutorService pool = Executors.newFixedThreadPool(SUBMITTERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> submitters = new ArrayList<>();
+            for (int p = 0; p < SUBMITTERS; p++) {
+                int base = p * PER_SUBMITTER;
+                submitters.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PER_SUBMITTER; i++) {
+                        Session s = new Session();
+                        s.actualMinutes = base + i;
+                        writeBehind.submit(s);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            // Let the queue fill up and the writer get going, then shut down mid-stream.
+            while (dao.stored.size() < SUBMITTERS * PER_SUBMITTER / 10) Thread.sleep(1);
+            writeBehind.close();
+            assertFalse(writeBehind.isEnabled());
+            for (Future<?> f : submitters) f.get(60, TimeUnit.SECONDS);
+
+            assertEquals(0, writeBehind.stats().get("queueDepth"));
+            assertEquals(SUBMITTERS * PER_SUBMITTER, dao.stored.size());
+            dao.stored.forEach((id, count) -> assertEquals(1, count.get(), "session " + id));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Rejects every batch and, on its own, only the session with {@code actualMinutes == REJECTED}. */
+    private static class OneBadRowDAO extends RecordingDAO {
+        static final int REJECTED = -1;
+
+        @Override
+        public void insert(Session s) {
+            if (s.actualMinutes == REJECTED) throw new IllegalStateException("fk_sessions_task");
+            super.insert(s);
+        }
+
+        @Override
+        public void insertBatch(List<Session> sessions) {
+            throw new IllegalStateException("batch rejected");
+        }
+    }
+
+    @Test
+    void aRejectedBatchOnlySpillsTheRowThatFailsOnItsOwn() throws Exception {
+        OneBadRowDAO dao = new OneBadRowDAO();
+        SessionWriteBehind writeBehind = new SessionWriteBehind(true, 64, 32, 5, 1, dao);
+        for (int i = 0; i < 10; i++) {
+            Session s = new Session();
+            s.userId = 990_001;
+            s.actualMinutes = i == 4 ? OneBadRowDAO.REJECTED : i;
+            writeBehind.submit(s);
+        }
+        writeBehind.close();
+
+        assertEquals(9, dao.stored.size());
+        assertFalse(dao.stored.containsKey(OneBadRowDAO.REJECTED));
+        assertEquals(1L, writeBehind.stats().get("rowsSpilledToMemory"));
+        assertTrue((Long) writeBehind.stats().get("batchesRetriedOneByOne") >= 1);
+    }
+}
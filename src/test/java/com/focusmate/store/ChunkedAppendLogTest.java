@@ -0,0 +1,127 @@
+package com.focusmate.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedAppendLogTest {
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 25_000;
+    private static final int READERS = 3;
+    // Small chunks, so nearly every read crosses many chunk boundaries.
+    private static final int CHUNK_SIZE = 16;
+
+    private record Item(int producer, int seq) {
+    }
+
+    @Test
+    void rejectsChunkSizesThatAreNotPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new ChunkedAppendLog<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new ChunkedAppendLog<>(12));
+    }
+
+    @Test
+    void readsBackAcrossChunkBoundaries() {
+        ChunkedAppendLog<Integer> log = new ChunkedAppendLog<>(4);
+        for (int i = 0; i < 10; i++) log.append(i);
+        assertEquals(10, log.size());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), log.toList());
+        assertEquals(log.toList(), log.stream().toList());
+        List<Integer> iterated = new ArrayList<>();
+        log.iterator().forEachRemaining(iterated::add);
+        assertEquals(log.toList(), iterated);
+    }
+
+    /**
+     * Producers append concurrently while readers keep taking views through
+     * forEach, iterator and stream. Every view must be a prefix of the final
+     * log: no gaps, no element twice, each producer's elements in the order it
+     * appended them, and each view extending the reader's previous one.
+     */
+    @Test
+    void concurrentReadersSeeEveryAppendOnceInPublishOrder() throws Exception {
+        ChunkedAppendLog<Item> log = new ChunkedAppendLog<>(CHUNK_SIZE);
+        ExecutorService pool = Executors.newFixedThreadPool(PRODUCERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                int producer = p;
+                producers.add(pool.submit(() -> {
+                    start.await();
+                    for (int seq = 0; seq < PER_PRODUCER; seq++) log.append(new Item(producer, seq));
+                    return null;
+                }));
+            }
+            List<Future<List<Item>>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                int mode = r;
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    List<Item> previous = List.of();
+                    int views = 0;
+                    do {
+                        List<Item> view = view(log, mode + views++);
+                        assertConsistent(view);
+                        assertTrue(view.size() >= previous.size(), "view shrank");
+                        for (int i = 0; i < previous.size(); i++) {
+                            assertSame(previous.get(i), view.get(i), "element " + i + " changed between views");
+                        }
+                        previous = view;
+                    } while (producing.get());
+                    return previous;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> f : producers) f.get(60, TimeUnit.SECONDS);
+            producing.set(false);
+
+            List<Item> all = log.toList();
+            assertEquals(PRODUCERS * PER_PRODUCER, all.size());
+            assertEquals(all.size(), log.size());
+            assertConsistent(all);
+            for (Future<List<Item>> f : readers) {
+                List<Item> last = f.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < last.size(); i++) assertSame(all.get(i), last.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static List<Item> view(ChunkedAppendLog<Item> log, int mode) {
+        switch (mode % 3) {
+            case 0:
+                return log.toList();
+            case 1: {
+                List<Item> items = new ArrayList<>();
+                log.iterator().forEachRemaining(items::add);
+                return items;
+            }
+            default:
+                return log.stream().toList();
+        }
+    }
+
+    /** No nulls, and each producer's items run 0, 1, 2, ... without gaps or repeats. */
+    private static void assertConsistent(List<Item> view) {
+        int[] nextSeq = new int[PRODUCERS];
+        for (int i = 0; i < view.size(); i++) {
+            Item item = view.get(i);
+            assertNotNull(item, "null at " + i);
+            assertEquals(nextSeq[item.producer()], item.seq(), "producer " + item.producer() + " at " + i);
+            nextSeq[item.producer()]++;
+        }
+    }
+}